@@ -0,0 +1,86 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.Material;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Stand-ins for the server pieces the benchmarked code needs, so it runs on a plain JVM:
+ * a silent logger instead of the plugin logger and a tick scheduler the benchmark advances itself.
+ */
+final class BenchmarkSupport {
+    static final Material[] MATERIALS = {
+            Material.DIAMOND, Material.EMERALD, Material.GOLD_INGOT, Material.IRON_INGOT,
+            Material.NETHERITE_INGOT, Material.ENCHANTED_GOLDEN_APPLE, Material.ELYTRA, Material.EXPERIENCE_BOTTLE
+    };
+
+    private BenchmarkSupport() {
+    }
+
+    static Logger silentLogger() {
+        Logger logger = Logger.getLogger("webstore-benchmark");
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+        return logger;
+    }
+
+    // Stable, well-spread ids without the cost of generating random UUIDs in a benchmark loop
+    static UUID playerId(int index) {
+        return new UUID(index * 0x9E3779B97F4A7C15L, ~(long) index);
+    }
+
+    // Queue shaped like a real one: a few items per offline player, all from webstore orders
+    static Map<UUID, List<PendingItem>> generateQueue(int items, int itemsPerPlayer) {
+        Map<UUID, List<PendingItem>> queue = new LinkedHashMap<>();
+        for (int i = 0; i < items; i++) {
+            UUID player = playerId(i / itemsPerPlayer);
+            queue.computeIfAbsent(player, k -> new ArrayList<>())
+                    .add(PendingItem.forOrder(MATERIALS[i % MATERIALS.length], 1 + i % 64, 100000 + i / itemsPerPlayer));
+        }
+        return queue;
+    }
+
+    /**
+     * Holds scheduled tasks until {@link #runPending()}, which stands in for the server reaching
+     * the tick they were scheduled for.
+     */
+    static final class ManualTicks implements PendingQueueWriter.TickScheduler {
+        private final List<Runnable> pending = new ArrayList<>();
+
+        @Override
+        public void runLater(Runnable task, long delayTicks) {
+            pending.add(task);
+        }
+
+        int runPending() {
+            List<Runnable> tasks = new ArrayList<>(pending);
+            pending.clear();
+            tasks.forEach(Runnable::run);
+            return tasks.size();
+        }
+    }
+
+    static File createTempFolder() throws IOException {
+        return Files.createTempDirectory("webstore-bench").toFile();
+    }
+
+    static void deleteRecursively(File folder) throws IOException {
+        if (folder == null || !folder.exists()) {
+            return;
+        }
+        try (Stream<java.nio.file.Path> paths = Files.walk(folder.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
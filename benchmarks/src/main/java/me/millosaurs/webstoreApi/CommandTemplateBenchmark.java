@@ -0,0 +1,68 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placeholder expansion and give parsing of a typical order: cached templates against the
+ * replace / lowercase / regex split chain they replaced.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandTemplateBenchmark {
+    private static final String[] COMMANDS = {
+            "give {player} diamond 5",
+            "give {player} netherite_ingot 2",
+            "lp user {player} parent add vip",
+            "tellraw {player} {\"text\":\"Thanks for order #{order_id}!\"}"
+    };
+
+    private final StringBuilder builder = new StringBuilder(128);
+    private final String player = "Notch";
+    private final Integer orderId = 123456;
+
+    @Benchmark
+    public void legacyReplaceAndSplit(Blackhole blackhole) {
+        for (String command : COMMANDS) {
+            String finalCommand = command
+                    .replace("{player}", player)
+                    .replace("{order_id}", orderId.toString());
+            String lowerCommand = finalCommand.toLowerCase().trim();
+            if (lowerCommand.startsWith("give ") || lowerCommand.startsWith("minecraft:give ")) {
+                String[] parts = finalCommand.trim().split("\\s+");
+                blackhole.consume(Material.matchMaterial(parts[2]));
+                blackhole.consume(parts.length > 3 ? Integer.parseInt(parts[3]) : 1);
+            }
+            blackhole.consume(finalCommand);
+        }
+    }
+
+    @Benchmark
+    public void compiledTemplates(Blackhole blackhole) {
+        for (String command : COMMANDS) {
+            CommandTemplate template = CommandTemplate.of(command);
+            String finalCommand = template.expand(builder, player, orderId, null, 1);
+            if (template.isGive()) {
+                CommandTemplate.GiveCommand give = template.giveCommand(finalCommand, 1);
+                blackhole.consume(give.material);
+                blackhole.consume(give.amount);
+            }
+            blackhole.consume(finalCommand);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package me.millosaurs.webstoreApi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiled whitelist trie against the per-check stream matcher it replaced.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandWhitelistBenchmark {
+    // The default config.yml list
+    private static final List<String> DEFAULT_WHITELIST = List.of(
+            "lp user", "lp group", "give", "gamemode", "say", "tellraw", "title", "playsound", "effect", "tp", "spawn");
+
+    private static final String[] COMMANDS = {
+            "give Notch diamond 5",
+            "lp user Notch parent add vip",
+            "tellraw Notch {\"text\":\"Thanks for your purchase!\"}",
+            "effect give Notch minecraft:speed 60 1",
+            "crate key give Notch legendary 1",
+            "op Notch"
+    };
+
+    @Param({"11", "60"})
+    public int prefixes;
+
+    private List<String> allowedCommands;
+    private CommandWhitelist whitelist;
+
+    @Setup
+    public void setUp() {
+        allowedCommands = new ArrayList<>(DEFAULT_WHITELIST);
+        for (int i = allowedCommands.size(); i < prefixes; i++) {
+            allowedCommands.add("plugin" + i + " grant");
+        }
+        whitelist = CommandWhitelist.compile(allowedCommands);
+    }
+
+    @Benchmark
+    public void legacyStreamMatcher(Blackhole blackhole) {
+        for (String command : COMMANDS) {
+            blackhole.consume(isCommandAllowedLegacy(command));
+        }
+    }
+
+    @Benchmark
+    public void compiledTrie(Blackhole blackhole) {
+        for (String command : COMMANDS) {
+            blackhole.consume(whitelist.isAllowed(command));
+        }
+    }
+
+    // Copy of the matcher previously used by WebstoreIntegrationPlugin
+    private boolean isCommandAllowedLegacy(String command) {
+        if (allowedCommands.isEmpty()) {
+            return true;
+        }
+        String normalizedCommand = command.toLowerCase().trim();
+        return allowedCommands.stream()
+                .anyMatch(allowed -> {
+                    String normalizedAllowed = allowed.toLowerCase().trim();
+                    return normalizedCommand.startsWith(normalizedAllowed);
+                });
+    }
+}
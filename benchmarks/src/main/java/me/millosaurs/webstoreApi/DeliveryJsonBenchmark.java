@@ -0,0 +1,87 @@
+package me.millosaurs.webstoreApi;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request decoding and result encoding, reflective Gson against the streaming adapters.
+ * Run with {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DeliveryJsonBenchmark {
+    private static final String REQUEST = "{\"orderId\":123456,\"minecraftUsername\":\"Notch\",\"commands\":[" +
+            "\"give {player} diamond 5\",\"give {player} netherite_ingot 2\",\"lp user {player} parent add vip\"," +
+            "\"tellraw {player} {\\\"text\\\":\\\"Thanks for order #{order_id}!\\\"}\"]}";
+
+    private final Gson reflectiveGson = new Gson();
+    private final DeliveryRequestReader reader = new DeliveryRequestReader(262144, 50, new LatencyHistogram(), new LatencyHistogram());
+    private final OutputStream sink = OutputStream.nullOutputStream();
+    private byte[] requestBytes;
+    private DeliveryResult result;
+
+    @Setup
+    public void setUp() {
+        requestBytes = REQUEST.getBytes(StandardCharsets.UTF_8);
+
+        result = new DeliveryResult();
+        result.orderId = 123456;
+        result.minecraftUsername = "Notch";
+        result.success = true;
+        result.executedCommands = new ArrayList<>();
+        result.failedCommands = new ArrayList<>();
+        result.queuedCommands = new ArrayList<>();
+        result.executedCommands.add("give Notch diamond 5 (delivered via API)");
+        result.executedCommands.add("give Notch netherite_ingot 2 (delivered via API)");
+        result.executedCommands.add("lp user Notch parent add vip");
+        result.executedCommands.add("tellraw Notch {\"text\":\"Thanks for order #123456!\"}");
+    }
+
+    // Previous path: whole body as a String, then reflective fromJson
+    @Benchmark
+    public DeliveryRequest decodeReflective() {
+        String body = new String(requestBytes, StandardCharsets.UTF_8);
+        return reflectiveGson.fromJson(body, DeliveryRequest.class);
+    }
+
+    @Benchmark
+    public DeliveryRequest decodeStreaming() throws IOException {
+        return reader.readOne(new ByteArrayInputStream(requestBytes), requestBytes.length);
+    }
+
+    // Previous path: toJson String, then byte[], then write
+    @Benchmark
+    public void encodeReflective() throws IOException {
+        sink.write(reflectiveGson.toJson(result).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void encodeStreaming() throws IOException {
+        JsonWriter writer = DeliveryJson.GSON.newJsonWriter(new BufferedWriter(new OutputStreamWriter(sink, StandardCharsets.UTF_8)));
+        DeliveryJson.GSON.toJson(result, DeliveryResult.class, writer);
+        writer.flush();
+    }
+}
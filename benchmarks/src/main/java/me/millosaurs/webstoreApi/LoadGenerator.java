@@ -0,0 +1,204 @@
+package me.millosaurs.webstoreApi;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load: a fixed number of workers each send the next request as soon as the
+ * previous one is answered, until the request budget is used up.
+ */
+final class LoadGenerator {
+    /** The order shapes a run can be made of. */
+    enum Mix {
+        // Rank and message commands for an online player, all dispatched on the main thread
+        COMMANDS,
+        // Items handed straight to an online player's inventory
+        GIVE_ONLINE,
+        // Items for offline players, which go through the pending queue and its storage
+        GIVE_OFFLINE,
+        // /deliver/batch with ten orders for a mix of players
+        BATCH,
+        // Weighted mix of the above, roughly what a busy store sends
+        MIXED;
+
+        static Mix parse(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private static final int BATCH_SIZE = 10;
+
+    private final HttpClient client;
+    private final URI deliverUri;
+    private final URI batchUri;
+    private final String authorization;
+    private final List<String> onlinePlayers;
+    private final List<String> offlinePlayers;
+    private final AtomicInteger orderIds = new AtomicInteger(100000);
+
+    LoadGenerator(int port, String secret, boolean async, List<String> onlinePlayers, List<String> offlinePlayers) {
+        String query = async ? "?async=true" : "";
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.deliverUri = URI.create("http://127.0.0.1:" + port + "/deliver" + query);
+        this.batchUri = URI.create("http://127.0.0.1:" + port + "/deliver/batch" + query);
+        this.authorization = "Bearer " + secret;
+        this.onlinePlayers = onlinePlayers;
+        this.offlinePlayers = offlinePlayers;
+    }
+
+    Result run(Mix mix, int concurrency, int requests) throws InterruptedException {
+        AtomicInteger remaining = new AtomicInteger(requests);
+        Result result = new Result(mix, requests);
+        Thread[] workers = new Thread[concurrency];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            workers[i] = new Thread(() -> work(mix, remaining, result), "Load-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private void work(Mix mix, AtomicInteger remaining, Result result) {
+        long[] latencies = new long[0];
+        int count = 0;
+        while (remaining.getAndDecrement() > 0) {
+            Mix shape = mix == Mix.MIXED ? pickMixed() : mix;
+            boolean batch = shape == Mix.BATCH;
+            String body = batch ? batchBody() : orderJson(shape);
+
+            HttpRequest request = HttpRequest.newBuilder(batch ? batchUri : deliverUri)
+                    .header("Authorization", authorization)
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+
+            long sent = System.nanoTime();
+            int status;
+            try {
+                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long latency = System.nanoTime() - sent;
+
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(1024, count * 2));
+            }
+            latencies[count++] = latency;
+            result.count(status, batch ? BATCH_SIZE : 1);
+        }
+        result.addLatencies(Arrays.copyOf(latencies, count));
+    }
+
+    private Mix pickMixed() {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        if (roll < 50) {
+            return Mix.COMMANDS;
+        }
+        if (roll < 75) {
+            return Mix.GIVE_ONLINE;
+        }
+        return roll < 95 ? Mix.GIVE_OFFLINE : Mix.BATCH;
+    }
+
+    private String batchBody() {
+        StringBuilder body = new StringBuilder(256 * BATCH_SIZE).append('[');
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append(orderJson(i % 3 == 0 ? Mix.GIVE_OFFLINE : Mix.COMMANDS));
+        }
+        return body.append(']').toString();
+    }
+
+    private String orderJson(Mix shape) {
+        String commands = switch (shape) {
+            case GIVE_ONLINE, GIVE_OFFLINE -> "\"give {player} diamond 5\",\"give {player} emerald 16\"";
+            default -> "\"lp user {player} parent add vip\",\"tellraw {player} {\\\"text\\\":\\\"Thanks for order #{order_id}!\\\"}\","
+                    + "\"say {player} bought a rank\"";
+        };
+        List<String> players = shape == Mix.GIVE_OFFLINE || onlinePlayers.isEmpty() ? offlinePlayers : onlinePlayers;
+        String player = players.get(ThreadLocalRandom.current().nextInt(players.size()));
+        return "{\"orderId\":" + orderIds.incrementAndGet() + ",\"minecraftUsername\":\"" + player + "\",\"commands\":[" + commands + "]}";
+    }
+
+    static final class Result {
+        final Mix mix;
+        final int requests;
+        final AtomicLong orders = new AtomicLong();
+        final AtomicLong ok = new AtomicLong();
+        final AtomicLong busy = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        private final List<long[]> latencyChunks = new ArrayList<>();
+        private long[] sorted;
+        long elapsedNanos;
+
+        Result(Mix mix, int requests) {
+            this.mix = mix;
+            this.requests = requests;
+        }
+
+        private void count(int status, int orderCount) {
+            if (status == 200 || status == 202) {
+                ok.incrementAndGet();
+                orders.addAndGet(orderCount);
+            } else if (status == 503) {
+                busy.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+        }
+
+        private synchronized void addLatencies(long[] latencies) {
+            latencyChunks.add(latencies);
+        }
+
+        double requestsPerSecond() {
+            return (ok.get() + busy.get() + failed.get()) * 1e9 / elapsedNanos;
+        }
+
+        double ordersPerSecond() {
+            return orders.get() * 1e9 / elapsedNanos;
+        }
+
+        /** Latency at the given quantile (0..1), in milliseconds. */
+        synchronized double percentileMillis(double quantile) {
+            if (sorted == null) {
+                sorted = latencyChunks.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            }
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * End-to-end load test: boots the plugin against a {@link StubServer} in a temporary folder,
+ * drives its HTTP API over loopback with {@link LoadGenerator} and reports throughput, latency
+ * percentiles and the MSPT each order mix causes on the simulated main thread.
+ * <p>
+ * Options are {@code --name=value}; {@code --set=key=value} overrides a config.yml entry and can
+ * be repeated. Run without network access, nothing leaves the machine.
+ */
+public final class LoadTestHarness {
+    private LoadTestHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> overrides = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Unknown argument " + arg + ", expected --name=value");
+                System.exit(2);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if ("set".equals(name)) {
+                overrides.put(value.substring(0, value.indexOf('=')), value.substring(value.indexOf('=') + 1));
+            } else {
+                options.put(name, value);
+            }
+        }
+
+        List<LoadGenerator.Mix> mixes = new ArrayList<>();
+        for (String mix : options.getOrDefault("mixes", "commands,give-online,give-offline,batch,mixed").split(",")) {
+            mixes.add(LoadGenerator.Mix.parse(mix));
+        }
+        int requests = Integer.parseInt(options.getOrDefault("requests", "5000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "1000"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        int players = Integer.parseInt(options.getOrDefault("players", "200"));
+        double onlineFraction = Double.parseDouble(options.getOrDefault("online", "0.5"));
+        int churnPerSecond = Integer.parseInt(options.getOrDefault("churn", "2"));
+        long commandCostMicros = Long.parseLong(options.getOrDefault("command-cost-micros", "50"));
+        boolean async = Boolean.parseBoolean(options.getOrDefault("async", "false"));
+        boolean verbose = Boolean.parseBoolean(options.getOrDefault("verbose", "false"));
+
+        Logger logger = Logger.getLogger("StubServer");
+        if (!verbose) {
+            Logger.getLogger("").setLevel(Level.WARNING);
+        }
+
+        File root = Files.createTempDirectory("webstore-load").toFile();
+        StubServer stub = new StubServer(logger, commandCostMicros);
+        stub.start();
+        try {
+            int port = freePort();
+            String secret = UUID.randomUUID().toString();
+            WebstoreIntegrationPlugin plugin = boot(root, port, secret, overrides);
+            if (!verbose) {
+                plugin.getLogger().setLevel(Level.WARNING);
+            }
+            stub.runOnMainThread(plugin::onEnable);
+
+            // Players 0..online-1 start online, the rest are known to the server but offline
+            List<String> online = new ArrayList<>();
+            List<String> offline = new ArrayList<>();
+            int onlineCount = (int) Math.round(players * onlineFraction);
+            for (int i = 0; i < players; i++) {
+                String name = "Player" + i;
+                if (i < onlineCount) {
+                    stub.join(name);
+                    online.add(name);
+                } else {
+                    stub.remember(name);
+                    offline.add(name);
+                }
+            }
+            if (offline.isEmpty()) {
+                offline.add("OfflinePlayer");
+                stub.remember("OfflinePlayer");
+            }
+
+            System.out.printf(Locale.ROOT, "Plugin on port %d, %d players (%d online), %d connections, %dµs per command%s%n",
+                    port, players, onlineCount, concurrency, commandCostMicros, async ? ", async accept" : "");
+            System.out.println("Idle: " + formatTicks(measureIdle(stub)));
+            System.out.println();
+            System.out.printf(Locale.ROOT, "%-13s %8s %8s %6s %9s %9s %8s %8s %8s %8s   %s%n",
+                    "mix", "requests", "orders", "errors", "req/s", "orders/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "main thread");
+
+            LoadGenerator generator = new LoadGenerator(port, secret, async, online, offline);
+            Churn churn = new Churn(stub, online, offline, churnPerSecond);
+            churn.start();
+            for (LoadGenerator.Mix mix : mixes) {
+                generator.run(mix, concurrency, warmup);
+                stub.resetRecorded();
+
+                stub.startRecording(20 * 60 * 60);
+                LoadGenerator.Result result = generator.run(mix, concurrency, requests);
+                long[] ticks = stub.stopRecording();
+
+                System.out.printf(Locale.ROOT, "%-13s %8d %8d %6d %9.0f %9.0f %8.2f %8.2f %8.2f %8.2f   %s%n",
+                        mix.label(), result.requests, result.orders.get(), result.failed.get() + result.busy.get(),
+                        result.requestsPerSecond(), result.ordersPerSecond(),
+                        result.percentileMillis(0.50), result.percentileMillis(0.95), result.percentileMillis(0.99),
+                        result.percentileMillis(1.0), formatTicks(ticks));
+                if (stub.dispatchedOffMainThread() > 0) {
+                    System.out.println("  WARNING: " + stub.dispatchedOffMainThread() + " command(s) dispatched off the main thread");
+                }
+            }
+            churn.interrupt();
+            churn.join();
+
+            stub.runOnMainThread(plugin::onDisable);
+        } finally {
+            stub.shutdown();
+            BenchmarkSupport.deleteRecursively(root);
+        }
+    }
+
+    @SuppressWarnings({"deprecation", "removal"}) // The loader is only a holder for the server here
+    private static WebstoreIntegrationPlugin boot(File root, int port, String secret, Map<String, String> overrides)
+            throws IOException, InvalidDescriptionException {
+        File plugins = new File(root, "plugins");
+        File dataFolder = new File(plugins, "WebstoreIntegration");
+        if (!dataFolder.mkdirs()) {
+            throw new IOException("Could not create " + dataFolder);
+        }
+
+        // bStats reads its switch from the shared plugins/bStats folder; never report from a load test
+        File bStats = new File(plugins, "bStats");
+        bStats.mkdirs();
+        Files.writeString(new File(bStats, "config.yml").toPath(),
+                "enabled: false\nserverUuid: " + UUID.randomUUID() + "\nlogFailedRequests: false\n");
+
+        PluginDescriptionFile description;
+        try (InputStream in = LoadTestHarness.class.getClassLoader().getResourceAsStream("plugin.yml")) {
+            if (in == null) {
+                throw new IOException("plugin.yml not found on the classpath");
+            }
+            description = new PluginDescriptionFile(in);
+        }
+
+        JavaPluginLoader loader = new JavaPluginLoader(org.bukkit.Bukkit.getServer());
+        WebstoreIntegrationPlugin plugin = new WebstoreIntegrationPlugin(loader, description, dataFolder,
+                new File(plugins, "WebstoreIntegration.jar"));
+
+        plugin.saveDefaultConfig();
+        FileConfiguration config = plugin.getConfig();
+        config.set("port", port);
+        config.set("secret", secret);
+        config.set("logging.logRequests", false);
+        config.set("logging.logCommands", false);
+        for (Map.Entry<String, String> override : overrides.entrySet()) {
+            config.set(override.getKey(), parseValue(override.getValue()));
+        }
+        return plugin;
+    }
+
+    private static Object parseValue(String value) {
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return Boolean.parseBoolean(value);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            // Not an integer
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long[] measureIdle(StubServer stub) throws InterruptedException {
+        stub.startRecording(100);
+        Thread.sleep(2000);
+        return stub.stopRecording();
+    }
+
+    // Average, p99 and worst tick, plus the TPS the loop actually reached
+    private static String formatTicks(long[] tickMicros) {
+        if (tickMicros.length == 0) {
+            return "no ticks recorded";
+        }
+        long[] sorted = tickMicros.clone();
+        Arrays.sort(sorted);
+        double average = Arrays.stream(sorted).average().orElse(0) / 1000.0;
+        double p99 = sorted[Math.max(0, (int) Math.ceil(0.99 * sorted.length) - 1)] / 1000.0;
+        double max = sorted[sorted.length - 1] / 1000.0;
+        double tps = Math.min(20.0, 1000.0 / Math.max(50.0, average));
+        return String.format(Locale.ROOT, "MSPT avg %.2f p99 %.2f max %.2f, %.1f TPS", average, p99, max, tps);
+    }
+
+    // Reconnects online players and briefly logs offline ones in, so joins with queued items overlap deliveries
+    private static final class Churn extends Thread {
+        private final StubServer stub;
+        private final List<String> online;
+        private final List<String> offline;
+        private final int perSecond;
+
+        Churn(StubServer stub, List<String> online, List<String> offline, int perSecond) {
+            super("Load-Churn");
+            setDaemon(true);
+            this.stub = stub;
+            this.online = online;
+            this.offline = offline;
+            this.perSecond = perSecond;
+        }
+
+        @Override
+        public void run() {
+            if (perSecond <= 0) {
+                return;
+            }
+            long interval = Math.max(1, 1000L / perSecond);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            try {
+                while (!isInterrupted()) {
+                    if (!online.isEmpty()) {
+                        String player = online.get(random.nextInt(online.size()));
+                        stub.quit(player);
+                        Thread.sleep(interval / 2);
+                        stub.join(player);
+                    }
+                    String visitor = offline.get(random.nextInt(offline.size()));
+                    stub.join(visitor);
+                    Thread.sleep(interval / 2);
+                    stub.quit(visitor);
+                }
+            } catch (InterruptedException e) {
+                // Run finished
+            }
+        }
+    }
+}
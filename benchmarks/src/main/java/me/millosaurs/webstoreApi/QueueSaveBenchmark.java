@@ -0,0 +1,66 @@
+package me.millosaurs.webstoreApi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One write-behind flush of the whole-file formats: serialize a snapshot and replace the file.
+ * The journal and sqlite backends persist per change, which {@link QueueStorageBenchmark#addItem} covers.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class QueueSaveBenchmark {
+    @Param({"yaml", "binary"})
+    public String format;
+
+    @Param({"1000", "100000", "1000000"})
+    public int items;
+
+    private Map<UUID, List<PendingItem>> snapshot;
+    private File dataFolder;
+    private File target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        snapshot = BenchmarkSupport.generateQueue(items, 4);
+        dataFolder = BenchmarkSupport.createTempFolder();
+        target = new File(dataFolder, "binary".equals(format) ? "pending.dat" : "pending.yml");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkSupport.deleteRecursively(dataFolder);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return "binary".equals(format) ? BinaryQueueFormat.encode(snapshot) : FileQueueStorage.toYaml(snapshot);
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        PendingQueueWriter.writeAtomically(target, encode());
+    }
+}
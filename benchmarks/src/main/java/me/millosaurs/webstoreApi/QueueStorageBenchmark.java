@@ -0,0 +1,168 @@
+package me.millosaurs.webstoreApi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Enqueue, write-behind flush, join lookup and startup load of each storage backend at different
+ * queue sizes. Run a single size with e.g. {@code -p items=100000}; yaml at 1M items takes minutes per load.
+ * <p>
+ * Every enqueue goes to a player who had nothing queued, so each one costs the same as the first;
+ * those players are removed again after every iteration, which keeps the queue at its seeded size.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QueueStorageBenchmark {
+    @Param({"yaml", "binary", "binary-lazy", "journal", "sqlite"})
+    public String backend;
+
+    @Param({"1000", "100000", "1000000"})
+    public int items;
+
+    private final Logger logger = BenchmarkSupport.silentLogger();
+    private final BenchmarkSupport.ManualTicks ticks = new BenchmarkSupport.ManualTicks();
+    private final FlushCounter flushes = new FlushCounter();
+    private File dataFolder;
+    private QueueStorage storage;
+    private int players;
+    private int added; // Fresh players enqueued to in this iteration
+    private int lookups;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFolder = BenchmarkSupport.createTempFolder();
+        players = Math.max(1, items / 4);
+
+        QueueStorage seed = create();
+        seed.load();
+        seed.importAll(BenchmarkSupport.generateQueue(items, 4));
+        ticks.runPending(); // Nothing of the seed may be left for the measured storage's ticks
+        seed.close(60);
+
+        storage = create();
+        storage.load();
+    }
+
+    // Not measured: drops this iteration's players and lets the whole-file backends write the result
+    @TearDown(Level.Iteration)
+    public void removeAdded() throws InterruptedException {
+        for (int i = 0; i < added; i++) {
+            storage.removePlayer(BenchmarkSupport.playerId(players + i));
+        }
+        added = 0;
+        long written = flushes.count();
+        if (ticks.runPending() > 0) {
+            flushes.awaitMoreThan(written);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        storage.close(60);
+        BenchmarkSupport.deleteRecursively(dataFolder);
+    }
+
+    private QueueStorage create() {
+        return switch (backend) {
+            case "journal" -> new JournalQueueStorage(dataFolder, logger, 5000, flushes);
+            case "sqlite" -> new SqlQueueStorage(dataFolder, logger, flushes);
+            case "binary-lazy" -> new LazyQueueStorage(dataFolder, logger, ticks, 20, flushes);
+            default -> new FileQueueStorage(dataFolder, logger, "binary".equals(backend), ticks, 20, flushes);
+        };
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void addItem() {
+        int index = added++;
+        storage.addItem(BenchmarkSupport.playerId(players + index),
+                PendingItem.forOrder(BenchmarkSupport.MATERIALS[index % BenchmarkSupport.MATERIALS.length], 1, index));
+    }
+
+    /**
+     * One enqueue until it is on disk. The whole-file backends write on a later tick, so that tick
+     * is run and the write awaited; journal and sqlite have already written when addItem returns.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void flush() throws InterruptedException {
+        long written = flushes.count();
+        addItem();
+        ticks.runPending();
+        flushes.awaitMoreThan(written);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object getItems() {
+        return storage.getItems(BenchmarkSupport.playerId(lookups++ % players));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int load() throws IOException {
+        QueueStorage loaded = create();
+        loaded.load();
+        int total = loaded.getTotalQueuedEntries();
+        loaded.close(60);
+        return total;
+    }
+
+    // The backends record every completed write here, which is how the benchmark knows one finished
+    static final class FlushCounter extends LatencyHistogram {
+        private final AtomicLong writes = new AtomicLong();
+
+        @Override
+        public void record(long nanos) {
+            super.record(nanos);
+            synchronized (writes) {
+                writes.incrementAndGet();
+                writes.notifyAll();
+            }
+        }
+
+        long count() {
+            return writes.get();
+        }
+
+        void awaitMoreThan(long count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 60_000;
+            synchronized (writes) {
+                while (writes.get() <= count) {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0) {
+                        throw new IllegalStateException("Queue write did not finish within 60s");
+                    }
+                    writes.wait(left);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Just enough of a Bukkit server to run the plugin in-process: a 20 TPS tick loop acting as
+ * the main thread, a scheduler on top of it, players that join and leave, and a console
+ * dispatcher that records commands instead of running them.
+ * <p>
+ * Everything is a {@link Proxy} over the API interfaces; methods the plugin does not use
+ * return null, zero or false. Tick durations are recorded so a load run can report the
+ * MSPT it caused.
+ */
+final class StubServer implements InvocationHandler {
+    private static final long TICK_NANOS = 50_000_000L;
+
+    private final Logger logger;
+    private final long commandCostNanos;
+    private final Server server;
+    private final BukkitScheduler scheduler;
+    private final PluginManager pluginManager;
+    private final ConsoleCommandSender console;
+
+    private final Map<String, Player> online = new ConcurrentHashMap<>();
+    private final Map<String, OfflinePlayer> known = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Queue<ScheduledTask> submitted = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<ScheduledTask> pending = new PriorityQueue<>(); // Tick thread only
+    private final AtomicInteger taskIds = new AtomicInteger();
+    private final ExecutorService asyncExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "Stub-Async");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Queue<String> dispatched = new ConcurrentLinkedQueue<>();
+    private final AtomicLong dispatchedOffMainThread = new AtomicLong();
+    private final AtomicLong itemsAdded = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+
+    // Tick durations in microseconds, one slot per tick, recorded between startRecording and stopRecording
+    private volatile long[] tickMicros = new long[0];
+    private volatile int recordedTicks;
+    private volatile boolean recording;
+
+    private final Thread tickThread;
+    private volatile boolean running = true;
+    private volatile int currentTick;
+    private volatile long lastTickNanos;
+
+    StubServer(Logger logger, long commandCostMicros) {
+        this.logger = logger;
+        this.commandCostNanos = commandCostMicros * 1000L;
+        this.server = proxy(Server.class, this);
+        this.scheduler = proxy(BukkitScheduler.class, this::scheduler);
+        this.pluginManager = proxy(PluginManager.class, this::pluginManager);
+        this.console = proxy(ConsoleCommandSender.class, (p, method, args) -> switch (method.getName()) {
+            case "getName" -> "CONSOLE";
+            case "getServer" -> server;
+            default -> defaultValue(p, method, args);
+        });
+        this.tickThread = new Thread(this::tickLoop, "Server thread");
+        this.tickThread.setDaemon(true);
+    }
+
+    /** Installs this server as the Bukkit singleton and starts ticking. Can only be done once per JVM. */
+    Server start() {
+        Bukkit.setServer(server);
+        tickThread.start();
+        return server;
+    }
+
+    void shutdown() {
+        CountDownLatch stopped = new CountDownLatch(1);
+        submitted.add(new ScheduledTask(nextTaskId(), null, () -> {
+            running = false;
+            stopped.countDown();
+        }, 0, -1, true));
+        try {
+            stopped.await();
+            tickThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        asyncExecutor.shutdownNow();
+    }
+
+    /** Runs the task on the main thread and waits for it, like a synchronous console command. */
+    void runOnMainThread(Runnable task) {
+        if (Thread.currentThread() == tickThread) {
+            task.run();
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        RuntimeException[] failure = new RuntimeException[1];
+        submitted.add(new ScheduledTask(nextTaskId(), null, () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failure[0] = e;
+            } finally {
+                done.countDown();
+            }
+        }, 0, -1, true));
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    // Players
+
+    /** Adds a known player without logging them in, so offline UUID lookups succeed. */
+    OfflinePlayer remember(String name) {
+        return known.computeIfAbsent(name.toLowerCase(Locale.ROOT), key -> offlinePlayer(name));
+    }
+
+    @SuppressWarnings("deprecation") // String join messages are fine for a stub
+    Player join(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        Player player = proxy(Player.class, new PlayerHandler(name, remember(name).getUniqueId()));
+        runOnMainThread(() -> {
+            online.put(key, player);
+            callEvent(new PlayerJoinEvent(player, name + " joined the game"));
+        });
+        return player;
+    }
+
+    @SuppressWarnings("deprecation")
+    void quit(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        runOnMainThread(() -> {
+            Player player = online.get(key);
+            if (player != null) {
+                callEvent(new PlayerQuitEvent(player, name + " left the game"));
+                online.remove(key);
+            }
+        });
+    }
+
+    boolean isOnline(String name) {
+        return online.containsKey(name.toLowerCase(Locale.ROOT));
+    }
+
+    // Hands the event to every @EventHandler of the registered listeners that accepts it
+    void callEvent(Event event) {
+        for (Listener listener : listeners) {
+            for (Method method : listener.getClass().getMethods()) {
+                if (method.isAnnotationPresent(EventHandler.class) && method.getParameterCount() == 1
+                        && method.getParameterTypes()[0].isInstance(event)) {
+                    try {
+                        method.invoke(listener, event);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    } catch (InvocationTargetException e) {
+                        logger.warning("Listener " + method.getName() + " failed: " + e.getCause());
+                    }
+                }
+            }
+        }
+    }
+
+    // Recorded effects
+
+    Collection<String> dispatchedCommands() {
+        return dispatched;
+    }
+
+    long dispatchedOffMainThread() {
+        return dispatchedOffMainThread.get();
+    }
+
+    long itemsAdded() {
+        return itemsAdded.get();
+    }
+
+    long messagesSent() {
+        return messagesSent.get();
+    }
+
+    void resetRecorded() {
+        dispatched.clear();
+        dispatchedOffMainThread.set(0);
+        itemsAdded.set(0);
+        messagesSent.set(0);
+    }
+
+    // MSPT recording
+
+    void startRecording(int maxTicks) {
+        tickMicros = new long[maxTicks];
+        recordedTicks = 0;
+        recording = true;
+    }
+
+    /** Stops recording and returns the duration of every tick since {@link #startRecording}, in microseconds. */
+    long[] stopRecording() {
+        recording = false;
+        return Arrays.copyOf(tickMicros, Math.min(recordedTicks, tickMicros.length));
+    }
+
+    int currentTick() {
+        return currentTick;
+    }
+
+    // Tick loop
+
+    private void tickLoop() {
+        long nextTick = System.nanoTime();
+        while (running) {
+            long start = System.nanoTime();
+            currentTick++;
+
+            ScheduledTask task;
+            while ((task = submitted.poll()) != null) {
+                pending.add(task);
+            }
+            while ((task = pending.peek()) != null && task.dueTick <= currentTick) {
+                pending.poll();
+                if (task.cancelled) {
+                    continue;
+                }
+                try {
+                    task.runnable.run();
+                } catch (Throwable t) {
+                    logger.warning("Task " + task.id + " failed on tick " + currentTick + ": " + t);
+                }
+                if (task.period > 0 && !task.cancelled) {
+                    task.dueTick = currentTick + task.period;
+                    pending.add(task);
+                }
+            }
+
+            long duration = System.nanoTime() - start;
+            lastTickNanos = duration;
+            if (recording) {
+                int slot = recordedTicks;
+                if (slot < tickMicros.length) {
+                    tickMicros[slot] = duration / 1000;
+                    recordedTicks = slot + 1;
+                }
+            }
+
+            // Like the vanilla loop: sleep out the rest of the 50ms, or start the next tick right away when behind
+            nextTick = Math.max(nextTick + TICK_NANOS, System.nanoTime() - TICK_NANOS);
+            long sleep;
+            while (running && (sleep = nextTick - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(sleep);
+            }
+        }
+    }
+
+    private int nextTaskId() {
+        return taskIds.incrementAndGet();
+    }
+
+    private BukkitTask schedule(Plugin plugin, Runnable runnable, long delay, long period) {
+        ScheduledTask task = new ScheduledTask(nextTaskId(), plugin, runnable, currentTick + Math.max(1, delay), period, true);
+        submitted.add(task);
+        return task;
+    }
+
+    private BukkitTask async(Plugin plugin, Runnable runnable) {
+        ScheduledTask task = new ScheduledTask(nextTaskId(), plugin, runnable, currentTick, -1, false);
+        asyncExecutor.execute(() -> {
+            if (!task.cancelled) {
+                runnable.run();
+            }
+        });
+        return task;
+    }
+
+    // Proxied interfaces
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        return switch (method.getName()) {
+            case "getName" -> "StubServer";
+            case "getVersion" -> "stub (MC: 1.20.1)";
+            case "getBukkitVersion" -> "1.20.1-R0.1-SNAPSHOT";
+            case "getLogger" -> logger;
+            case "getScheduler" -> scheduler;
+            case "getPluginManager" -> pluginManager;
+            case "getConsoleSender" -> console;
+            case "getOnlineMode" -> false;
+            case "getOnlinePlayers" -> List.copyOf(online.values());
+            case "getPlayerExact" -> online.get(((String) args[0]).toLowerCase(Locale.ROOT));
+            case "getOfflinePlayerIfCached" -> known.get(((String) args[0]).toLowerCase(Locale.ROOT));
+            case "isPrimaryThread" -> Thread.currentThread() == tickThread;
+            case "getCurrentTick" -> currentTick;
+            case "getAverageTickTime" -> lastTickNanos / 1_000_000.0;
+            case "getTPS" -> tps();
+            case "dispatchCommand" -> dispatch((String) args[1]);
+            default -> defaultValue(proxy, method, args);
+        };
+    }
+
+    private double[] tps() {
+        double tps = Math.min(20.0, 1_000_000_000.0 / Math.max(TICK_NANOS, lastTickNanos));
+        return new double[]{tps, tps, tps};
+    }
+
+    private boolean dispatch(String command) {
+        if (Thread.currentThread() != tickThread) {
+            dispatchedOffMainThread.incrementAndGet();
+        }
+        dispatched.add(command);
+        // Stand-in for the time a real command takes on the main thread
+        long until = System.nanoTime() + commandCostNanos;
+        while (System.nanoTime() < until) {
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+
+    private Object scheduler(Object proxy, Method method, Object[] args) {
+        if (args != null && args.length >= 2 && args[1] instanceof Runnable runnable) {
+            Plugin plugin = (Plugin) args[0];
+            switch (method.getName()) {
+                case "runTask":
+                    return schedule(plugin, runnable, 1, -1);
+                case "runTaskLater":
+                    return schedule(plugin, runnable, (Long) args[2], -1);
+                case "runTaskTimer":
+                    return schedule(plugin, runnable, (Long) args[2], (Long) args[3]);
+                case "runTaskAsynchronously":
+                    return async(plugin, runnable);
+                default:
+                    break;
+            }
+        }
+        return switch (method.getName()) {
+            case "cancelTasks" -> {
+                submitted.forEach(task -> task.cancelled |= task.owner == args[0]);
+                runOnMainThread(() -> pending.forEach(task -> task.cancelled |= task.owner == args[0]));
+                yield null;
+            }
+            case "isCurrentlyRunning", "isQueued" -> false;
+            default -> throw new UnsupportedOperationException("Stub scheduler does not support " + method);
+        };
+    }
+
+    private Object pluginManager(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "registerEvents" -> {
+                listeners.add((Listener) args[0]);
+                yield null;
+            }
+            case "callEvent" -> {
+                callEvent((Event) args[0]);
+                yield null;
+            }
+            default -> defaultValue(proxy, method, args);
+        };
+    }
+
+    private OfflinePlayer offlinePlayer(String name) {
+        UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+        return proxy(OfflinePlayer.class, (p, method, args) -> switch (method.getName()) {
+            case "getName" -> name;
+            case "getUniqueId" -> uuid;
+            case "isOnline" -> isOnline(name);
+            case "getPlayer" -> online.get(name.toLowerCase(Locale.ROOT));
+            default -> defaultValue(p, method, args);
+        });
+    }
+
+    private final class PlayerHandler implements InvocationHandler {
+        private final String name;
+        private final UUID uuid;
+        private final PlayerInventory inventory;
+
+        PlayerHandler(String name, UUID uuid) {
+            this.name = name;
+            this.uuid = uuid;
+            this.inventory = proxy(PlayerInventory.class, (p, method, args) -> {
+                if ("addItem".equals(method.getName())) {
+                    for (ItemStack item : (ItemStack[]) args[0]) {
+                        itemsAdded.addAndGet(item.getAmount());
+                    }
+                    return new HashMap<Integer, ItemStack>();
+                }
+                return defaultValue(p, method, args);
+            });
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "getName", "getDisplayName" -> name;
+                case "getUniqueId" -> uuid;
+                case "isOnline" -> online.get(name.toLowerCase(Locale.ROOT)) == proxy;
+                case "getInventory" -> inventory;
+                case "getServer" -> server;
+                case "sendMessage" -> {
+                    messagesSent.incrementAndGet();
+                    yield null;
+                }
+                default -> defaultValue(proxy, method, args);
+            };
+        }
+    }
+
+    private static final class ScheduledTask implements BukkitTask, Comparable<ScheduledTask> {
+        private final int id;
+        private final Plugin owner;
+        private final Runnable runnable;
+        private final long period;
+        private final boolean sync;
+        private long dueTick;
+        private volatile boolean cancelled;
+
+        ScheduledTask(int id, Plugin owner, Runnable runnable, long dueTick, long period, boolean sync) {
+            this.id = id;
+            this.owner = owner;
+            this.runnable = runnable;
+            this.dueTick = dueTick;
+            this.period = period;
+            this.sync = sync;
+        }
+
+        @Override
+        public int compareTo(ScheduledTask other) {
+            int byTick = Long.compare(dueTick, other.dueTick);
+            return byTick != 0 ? byTick : Integer.compare(id, other.id);
+        }
+
+        @Override
+        public int getTaskId() {
+            return id;
+        }
+
+        @Override
+        public Plugin getOwner() {
+            return owner;
+        }
+
+        @Override
+        public boolean isSync() {
+            return sync;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    // Object methods behave like identity, everything else returns the type's default value
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return method.getDeclaringClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+            default:
+                break;
+        }
+        Class<?> type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        return type == short.class ? (Object) (short) 0 : (Object) (byte) 0;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(StubServer.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
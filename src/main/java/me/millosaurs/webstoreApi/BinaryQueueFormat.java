@@ -0,0 +1,434 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.Material;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary layout of the pending queue (pending.dat).
+ *
+ * <pre>
+ * magic "WSQB" | version
+ * material dictionary: count, keys
+ * note dictionary:     count, notes
+ * item dictionary:     count, (varint length, serialized item)*
+ * command dictionary:  count, commands
+ * player index:        count, (uuid, data offset, item count)*
+ * item data:           (material id, amount, note id + 1 or 0, item id + 1 or 0, command id + 1 or 0,
+ *                       order count, order ids)*
+ * CRC32 of everything above
+ * </pre>
+ * All counts, ids and amounts are unsigned varints, strings are varint length + UTF-8,
+ * UUIDs are two big-endian longs.
+ * Order ids are stored as the first id followed by the gaps between them.
+ * Materials are resolved once per dictionary entry instead of once per item, and each distinct
+ * full item is stored once however many players have it queued.
+ */
+public final class BinaryQueueFormat {
+    private static final int MAGIC = 0x57535142; // "WSQB"
+    private static final int VERSION = 1;
+
+    private BinaryQueueFormat() {
+    }
+
+    public static byte[] encode(Map<UUID, List<PendingItem>> queue) {
+        Map<String, Integer> materialIds = new LinkedHashMap<>();
+        Map<String, Integer> noteIds = new LinkedHashMap<>();
+        Map<ItemData, Integer> itemIds = new LinkedHashMap<>();
+        Map<String, Integer> commandIds = new LinkedHashMap<>();
+        Map<UUID, int[]> index = new LinkedHashMap<>(); // player -> {offset, count}
+        Buffer data = new Buffer(queue.size() * 16);
+
+        for (Map.Entry<UUID, List<PendingItem>> entry : queue.entrySet()) {
+            writeItems(entry.getKey(), entry.getValue(), materialIds, noteIds, itemIds, commandIds, index, data);
+        }
+
+        return assemble(materialIds, noteIds, itemIds, commandIds, index, data);
+    }
+
+    /**
+     * Re-encodes {@code base} with the given players replaced (an empty list removes the player).
+     * Players that did not change are copied byte for byte without being decoded: the base
+     * dictionaries are kept as a prefix of the new ones, so their material, note, item and command ids stay valid.
+     */
+    public static byte[] encode(Reader base, Map<UUID, List<PendingItem>> changes) {
+        Map<String, Integer> materialIds = new LinkedHashMap<>();
+        for (String materialKey : base.materialKeys) {
+            materialIds.putIfAbsent(materialKey, materialIds.size());
+        }
+        Map<String, Integer> noteIds = new LinkedHashMap<>();
+        for (String note : base.notes) {
+            noteIds.putIfAbsent(note, noteIds.size());
+        }
+        Map<ItemData, Integer> itemIds = new LinkedHashMap<>();
+        for (ItemData itemData : base.itemData) {
+            itemIds.putIfAbsent(itemData, itemIds.size());
+        }
+        Map<String, Integer> commandIds = new LinkedHashMap<>();
+        for (String command : base.commands) {
+            commandIds.putIfAbsent(command, commandIds.size());
+        }
+
+        Map<UUID, int[]> index = new LinkedHashMap<>();
+        ByteBuffer baseData = base.readData(0, base.dataLength);
+        Buffer data = new Buffer(base.dataLength + changes.size() * 16);
+        base.index.forEach((playerId, entry) -> {
+            if (!changes.containsKey(playerId)) {
+                index.put(playerId, new int[]{data.size(), entry[1]});
+                data.write(baseData, entry[0], entry[2]);
+            }
+        });
+        for (Map.Entry<UUID, List<PendingItem>> entry : changes.entrySet()) {
+            writeItems(entry.getKey(), entry.getValue(), materialIds, noteIds, itemIds, commandIds, index, data);
+        }
+
+        return assemble(materialIds, noteIds, itemIds, commandIds, index, data);
+    }
+
+    private static void writeItems(UUID playerId, List<PendingItem> items, Map<String, Integer> materialIds,
+                                   Map<String, Integer> noteIds, Map<ItemData, Integer> itemIds,
+                                   Map<String, Integer> commandIds, Map<UUID, int[]> index, Buffer data) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        index.put(playerId, new int[]{data.size(), items.size()});
+        for (PendingItem item : items) {
+            String materialKey = item.material.getKey().toString();
+            data.writeVarInt(materialIds.computeIfAbsent(materialKey, k -> materialIds.size()));
+            data.writeVarInt(item.amount);
+            data.writeVarInt(item.note == null ? 0 : noteIds.computeIfAbsent(item.note, k -> noteIds.size()) + 1);
+            data.writeVarInt(item.itemData == null ? 0 : itemIds.computeIfAbsent(item.itemData, k -> itemIds.size()) + 1);
+            data.writeVarInt(item.command == null ? 0 : commandIds.computeIfAbsent(item.command, k -> commandIds.size()) + 1);
+            data.writeVarInt(item.orderIds.length);
+            int previous = 0;
+            for (int orderId : item.orderIds) {
+                data.writeVarInt(orderId - previous);
+                previous = orderId;
+            }
+        }
+    }
+
+    private static byte[] assemble(Map<String, Integer> materialIds, Map<String, Integer> noteIds,
+                                   Map<ItemData, Integer> itemIds, Map<String, Integer> commandIds,
+                                   Map<UUID, int[]> index, Buffer data) {
+        Buffer out = new Buffer(data.size() + index.size() * 24 + 64);
+        out.writeInt(MAGIC);
+        out.writeVarInt(VERSION);
+
+        out.writeVarInt(materialIds.size());
+        for (String materialKey : materialIds.keySet()) {
+            out.writeString(materialKey);
+        }
+
+        out.writeVarInt(noteIds.size());
+        for (String note : noteIds.keySet()) {
+            out.writeString(note);
+        }
+
+        out.writeVarInt(itemIds.size());
+        for (ItemData itemData : itemIds.keySet()) {
+            out.writeVarInt(itemData.bytes.length);
+            out.write(itemData.bytes, 0, itemData.bytes.length);
+        }
+
+        out.writeVarInt(commandIds.size());
+        for (String command : commandIds.keySet()) {
+            out.writeString(command);
+        }
+
+        out.writeVarInt(index.size());
+        for (Map.Entry<UUID, int[]> entry : index.entrySet()) {
+            out.writeLong(entry.getKey().getMostSignificantBits());
+            out.writeLong(entry.getKey().getLeastSignificantBits());
+            out.writeVarInt(entry.getValue()[0]);
+            out.writeVarInt(entry.getValue()[1]);
+        }
+
+        out.write(data.array(), 0, data.size());
+
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, out.size());
+        out.writeInt((int) crc.getValue());
+
+        return out.toByteArray();
+    }
+
+    public static Map<UUID, List<PendingItem>> read(File file, Logger logger) throws IOException {
+        return open(file, logger).readAll();
+    }
+
+    // Read onto the heap rather than mapped: a mapping would hold the file open until it is collected,
+    // and on Windows the writer could not rename a new pending.dat over it meanwhile
+    public static Reader open(File file, Logger logger) throws IOException {
+        return new Reader(ByteBuffer.wrap(Files.readAllBytes(file.toPath())), null, logger);
+    }
+
+    /**
+     * Checks the file and keeps only its dictionaries and player index in memory; a player's item
+     * data is read from the file when it is asked for. The file must not change while the reader
+     * is in use, and no file handle or mapping is held in between.
+     */
+    public static Reader openIndex(File file, Logger logger) throws IOException {
+        return openIndex(file, Files.readAllBytes(file.toPath()), logger);
+    }
+
+    /**
+     * Same as {@link #openIndex(File, Logger)} for a file whose contents the caller just wrote.
+     */
+    public static Reader openIndex(File file, byte[] contents, Logger logger) throws IOException {
+        return new Reader(ByteBuffer.wrap(contents), file, logger);
+    }
+
+    /**
+     * Parsed header + player index, over either the file's contents in memory or (index-only) the
+     * file on disk; item data is decoded on demand.
+     */
+    public static final class Reader {
+        private final ByteBuffer buffer; // Null for index-only readers
+        private final File file;
+        private final String[] materialKeys;
+        private final Material[] materials;
+        private final String[] notes;
+        private final ItemData[] itemData;
+        private final String[] commands;
+        private final UuidMap<int[]> index; // player -> {data offset, item count, data length}
+        private final int dataStart;
+        private final int dataLength;
+        private long totalEntries;
+
+        private Reader(ByteBuffer buffer, File file, Logger logger) throws IOException {
+            if (buffer.limit() < 8) {
+                throw new IOException("Pending queue file is truncated");
+            }
+
+            int crcPosition = buffer.limit() - 4;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(crcPosition));
+            if ((int) crc.getValue() != buffer.getInt(crcPosition)) {
+                throw new IOException("Pending queue file checksum mismatch");
+            }
+
+            ByteBuffer in = buffer.duplicate().limit(crcPosition);
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a binary pending queue file");
+            }
+            int version = readVarInt(in);
+            if (version != VERSION) {
+                throw new IOException("Unsupported pending queue file version " + version);
+            }
+
+            materialKeys = new String[readVarInt(in)];
+            materials = new Material[materialKeys.length];
+            for (int i = 0; i < materials.length; i++) {
+                materialKeys[i] = readString(in);
+                materials[i] = Material.matchMaterial(materialKeys[i]);
+                if (materials[i] == null) {
+                    logger.warning("Skipping invalid material in queue: " + materialKeys[i]);
+                }
+            }
+
+            notes = new String[readVarInt(in)];
+            for (int i = 0; i < notes.length; i++) {
+                notes[i] = readString(in);
+            }
+
+            itemData = new ItemData[readVarInt(in)];
+            for (int i = 0; i < itemData.length; i++) {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.get(bytes);
+                itemData[i] = ItemData.of(bytes);
+            }
+
+            commands = new String[readVarInt(in)];
+            for (int i = 0; i < commands.length; i++) {
+                commands[i] = readString(in);
+            }
+
+            // Item data is written in index order, so each entry ends where the next one starts
+            int players = readVarInt(in);
+            index = new UuidMap<>(players);
+            int[] previous = null;
+            for (int i = 0; i < players; i++) {
+                UUID playerId = new UUID(in.getLong(), in.getLong());
+                int[] entry = {readVarInt(in), readVarInt(in), 0};
+                if (previous != null) {
+                    previous[2] = entry[0] - previous[0];
+                }
+                index.put(playerId, entry);
+                totalEntries += entry[1];
+                previous = entry;
+            }
+
+            this.dataStart = in.position();
+            this.dataLength = crcPosition - dataStart;
+            if (previous != null) {
+                previous[2] = dataLength - previous[0];
+            }
+            this.file = file;
+            this.buffer = file == null ? in : null;
+        }
+
+        public int playerCount() {
+            return index.size();
+        }
+
+        public long totalEntries() {
+            return totalEntries;
+        }
+
+        public boolean contains(UUID playerId) {
+            return index.get(playerId) != null;
+        }
+
+        public int itemCount(UUID playerId) {
+            int[] entry = index.get(playerId);
+            return entry == null ? 0 : entry[1];
+        }
+
+        public List<PendingItem> readItems(UUID playerId) {
+            int[] entry = index.get(playerId);
+            if (entry == null) {
+                return new ArrayList<>();
+            }
+
+            ByteBuffer in = readData(entry[0], entry[2]);
+            List<PendingItem> items = new ArrayList<>(entry[1]);
+            for (int i = 0; i < entry[1]; i++) {
+                Material material = materials[readVarInt(in)];
+                int amount = readVarInt(in);
+                int noteId = readVarInt(in);
+                String note = noteId == 0 ? null : notes[noteId - 1];
+                int itemId = readVarInt(in);
+                int commandId = readVarInt(in);
+                int[] orderIds = new int[readVarInt(in)];
+                int previous = 0;
+                for (int j = 0; j < orderIds.length; j++) {
+                    previous += readVarInt(in);
+                    orderIds[j] = previous;
+                }
+                if (material != null) {
+                    PendingItem.addTo(items, new PendingItem(material, amount, orderIds, note,
+                            itemId == 0 ? null : itemData[itemId - 1], commandId == 0 ? null : commands[commandId - 1]));
+                }
+            }
+            return items;
+        }
+
+        // Index-only readers read just this range from disk; an I/O failure surfaces as UncheckedIOException
+        private ByteBuffer readData(int offset, int length) {
+            if (buffer != null) {
+                return buffer.duplicate().position(dataStart + offset).slice();
+            }
+
+            ByteBuffer data = ByteBuffer.allocate(length);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                while (data.hasRemaining()) {
+                    if (channel.read(data, dataStart + offset + data.position()) < 0) {
+                        throw new EOFException(file.getName() + " is shorter than its index");
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return data.flip();
+        }
+
+        public Map<UUID, List<PendingItem>> readAll() {
+            Map<UUID, List<PendingItem>> queue = new HashMap<>(Math.max(16, index.size() * 4 / 3 + 1));
+            index.forEach((playerId, entry) -> {
+                List<PendingItem> items = readItems(playerId);
+                if (!items.isEmpty()) {
+                    queue.put(playerId, items);
+                }
+            });
+            return queue;
+        }
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IllegalStateException("VarInt too long");
+            }
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ByteArrayOutputStream with direct access to the backing array and varint helpers
+    static final class Buffer extends ByteArrayOutputStream {
+        Buffer(int initialSize) {
+            super(Math.max(32, initialSize));
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        void write(ByteBuffer source, int offset, int length) {
+            if (source.hasArray()) {
+                write(source.array(), source.arrayOffset() + offset, length);
+            } else {
+                byte[] bytes = new byte[length];
+                source.get(offset, bytes);
+                write(bytes, 0, length);
+            }
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
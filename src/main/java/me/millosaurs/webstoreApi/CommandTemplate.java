@@ -0,0 +1,250 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A command string from an order, parsed once into literal text and placeholder slots.
+ * Stores send the same few templates over and over, so parsed templates are cached and
+ * expanding one is a single append pass. Give commands also carry their material and amount,
+ * plus the item argument when it has components ({@code diamond_sword{Enchantments:[...]}}).
+ */
+public final class CommandTemplate {
+    private static final int MAX_CACHED = 1024;
+    private static final Map<String, CommandTemplate> CACHE = new ConcurrentHashMap<>();
+
+    enum Slot {
+        PLAYER("{player}"),
+        ORDER_ID("{order_id}"),
+        UUID("{uuid}"),
+        QUANTITY("{quantity}");
+
+        private final String token;
+
+        Slot(String token) {
+            this.token = token;
+        }
+    }
+
+    private final String[] literals;
+    private final Slot[] slots;
+    private final boolean usesUuid;
+    private final boolean give;
+    private final GiveCommand giveCommand;
+
+    private CommandTemplate(String source) {
+        List<String> literals = new ArrayList<>();
+        List<Slot> slots = new ArrayList<>();
+        int literalStart = 0;
+        int open = source.indexOf('{');
+        while (open >= 0) {
+            Slot slot = slotAt(source, open);
+            if (slot != null) {
+                literals.add(source.substring(literalStart, open));
+                slots.add(slot);
+                literalStart = open + slot.token.length();
+            }
+            open = source.indexOf('{', slot != null ? literalStart : open + 1);
+        }
+        literals.add(source.substring(literalStart));
+
+        this.literals = literals.toArray(new String[0]);
+        this.slots = slots.toArray(new Slot[0]);
+        this.usesUuid = slots.contains(Slot.UUID);
+
+        String[] parts = split(source);
+        String verb = parts.length > 0 ? parts[0].toLowerCase() : "";
+        this.give = parts.length > 1 && (verb.equals("give") || verb.equals("minecraft:give"));
+        this.giveCommand = give ? GiveCommand.compile(parts, true) : null;
+    }
+
+    public static CommandTemplate of(String source) {
+        CommandTemplate template = CACHE.get(source);
+        if (template == null) {
+            // Commands come from the webstore, so never let the cache grow without bound
+            if (CACHE.size() >= MAX_CACHED) {
+                CACHE.clear();
+            }
+            template = new CommandTemplate(source);
+            CACHE.put(source, template);
+        }
+        return template;
+    }
+
+    // Splits on whitespace outside of {...}, [...] and quotes, so an item with components stays one part
+    private static String[] split(String command) {
+        List<String> parts = new ArrayList<>();
+        int start = -1;
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < command.length(); i++) {
+            char c = command.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if ((c == '}' || c == ']') && depth > 0) {
+                depth--;
+            } else if (depth == 0 && Character.isWhitespace(c)) {
+                if (start >= 0) {
+                    parts.add(command.substring(start, i));
+                    start = -1;
+                }
+                continue;
+            }
+            if (start < 0) {
+                start = i;
+            }
+        }
+        if (start >= 0) {
+            parts.add(command.substring(start));
+        }
+        return parts.toArray(new String[0]);
+    }
+
+    private static boolean containsSlot(String text) {
+        for (Slot slot : Slot.values()) {
+            if (text.contains(slot.token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Slot slotAt(String source, int index) {
+        for (Slot slot : Slot.values()) {
+            if (source.startsWith(slot.token, index)) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Appends the expanded command to {@code out} (cleared first) and returns it as a string.
+     * {@code uuid} is only read when {@link #usesUuid()} is true.
+     */
+    public String expand(StringBuilder out, String player, int orderId, String uuid, int quantity) {
+        out.setLength(0);
+        out.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            switch (slots[i]) {
+                case PLAYER -> out.append(player);
+                case ORDER_ID -> out.append(orderId);
+                case UUID -> out.append(uuid);
+                case QUANTITY -> out.append(quantity);
+            }
+            out.append(literals[i + 1]);
+        }
+        return out.toString();
+    }
+
+    public boolean usesUuid() {
+        return usesUuid;
+    }
+
+    public boolean isGive() {
+        return give;
+    }
+
+    /**
+     * Material and amount of a give command. Resolved from the expanded command when the
+     * template has a placeholder in those positions, otherwise taken from the cached parse.
+     */
+    public GiveCommand giveCommand(String expanded, int quantity) {
+        if (giveCommand == null) {
+            return GiveCommand.compile(split(expanded), false);
+        }
+        return giveCommand.amountFromQuantity ? giveCommand.withAmount(quantity) : giveCommand;
+    }
+
+    /**
+     * Parsed {@code give <player> <item> [amount]}. When {@link #error} is set the
+     * command is invalid and the other fields are not meaningful.
+     */
+    public static final class GiveCommand {
+        public final Material material;
+        public final int amount;
+        public final String error;
+        public final String item; // Item argument when it has components, null for a plain material
+        private final boolean amountFromQuantity;
+
+        private GiveCommand(Material material, int amount, String error, String item, boolean amountFromQuantity) {
+            this.material = material;
+            this.amount = amount;
+            this.error = error;
+            this.item = item;
+            this.amountFromQuantity = amountFromQuantity;
+        }
+
+        /**
+         * The full item for a command with components, null for a plain material. Main thread only.
+         *
+         * @throws IllegalArgumentException if the server cannot parse the item
+         */
+        ItemData itemData() {
+            return item != null ? ItemData.parse(item) : null;
+        }
+
+        // For a template, returns null while the material or amount still depends on a placeholder
+        private static GiveCommand compile(String[] parts, boolean template) {
+            if (parts.length < 3) {
+                return new GiveCommand(null, 0, "invalid give command format", null, false);
+            }
+
+            String itemArgument = parts[2];
+            if (template && containsSlot(itemArgument)) {
+                return null;
+            }
+            int components = componentsStart(itemArgument);
+            String materialName = components < 0 ? itemArgument : itemArgument.substring(0, components);
+
+            int amount = 1;
+            boolean amountFromQuantity = false;
+            if (parts.length > 3) {
+                if (template && parts[3].equals(Slot.QUANTITY.token)) {
+                    amountFromQuantity = true;
+                } else if (template && parts[3].indexOf('{') >= 0) {
+                    return null;
+                } else {
+                    try {
+                        amount = Integer.parseInt(parts[3]);
+                    } catch (NumberFormatException e) {
+                        return new GiveCommand(null, 0, "invalid amount: " + parts[3], null, false);
+                    }
+                }
+            }
+
+            Material material = Material.matchMaterial(materialName);
+            if (material == null) {
+                return new GiveCommand(null, 0, "invalid material: " + itemArgument, null, false);
+            }
+            return new GiveCommand(material, amount, null, components < 0 ? null : itemArgument, amountFromQuantity);
+        }
+
+        // Start of the item's {nbt} or [components], -1 for a plain material
+        private static int componentsStart(String itemArgument) {
+            for (int i = 0; i < itemArgument.length(); i++) {
+                char c = itemArgument.charAt(i);
+                if (c == '{' || c == '[') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private GiveCommand withAmount(int amount) {
+            return new GiveCommand(material, amount, null, item, false);
+        }
+    }
+}
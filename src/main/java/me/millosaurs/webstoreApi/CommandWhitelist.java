@@ -0,0 +1,173 @@
+package me.millosaurs.webstoreApi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Command prefixes (the allowed commands, or those deferred for offline players) compiled into an
+ * immutable character trie.
+ * Prefixes and commands are compared case-insensitively with whitespace runs collapsed, and a
+ * prefix ending in a word character only matches whole tokens ("give" allows "give Steve diamond"
+ * but not "giveall"). A check is a single pass over the command without allocating.
+ */
+public final class CommandWhitelist {
+    private static final CommandWhitelist ALLOW_ALL = new CommandWhitelist(new char[0][], new int[0][], new boolean[0], new boolean[0], 0);
+
+    // Per node: sorted edge labels, matching child nodes, prefix ends here, prefix needs a token boundary
+    private final char[][] labels;
+    private final int[][] children;
+    private final boolean[] terminal;
+    private final boolean[] tokenBoundary;
+    private final int size;
+
+    private CommandWhitelist(char[][] labels, int[][] children, boolean[] terminal, boolean[] tokenBoundary, int size) {
+        this.labels = labels;
+        this.children = children;
+        this.terminal = terminal;
+        this.tokenBoundary = tokenBoundary;
+        this.size = size;
+    }
+
+    public static CommandWhitelist compile(List<String> prefixes) {
+        Builder root = new Builder();
+        int size = 0;
+        for (String prefix : prefixes) {
+            if (prefix == null) {
+                continue;
+            }
+            String normalized = normalize(prefix);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+
+            Builder node = root;
+            for (int i = 0; i < normalized.length(); i++) {
+                node = node.children.computeIfAbsent(normalized.charAt(i), c -> new Builder());
+            }
+            boolean wholeToken = isWordChar(normalized.charAt(normalized.length() - 1));
+            // A plain prefix wins over a token-bound duplicate
+            node.tokenBoundary = node.terminal ? node.tokenBoundary && wholeToken : wholeToken;
+            node.terminal = true;
+            size++;
+        }
+
+        if (size == 0) {
+            return ALLOW_ALL;
+        }
+
+        List<Builder> nodes = new ArrayList<>();
+        nodes.add(root);
+        for (int i = 0; i < nodes.size(); i++) {
+            Builder node = nodes.get(i);
+            node.index = i;
+            nodes.addAll(node.children.values());
+        }
+
+        int count = nodes.size();
+        char[][] labels = new char[count][];
+        int[][] children = new int[count][];
+        boolean[] terminal = new boolean[count];
+        boolean[] tokenBoundary = new boolean[count];
+        for (Builder node : nodes) {
+            int edges = node.children.size();
+            labels[node.index] = new char[edges];
+            children[node.index] = new int[edges];
+            int e = 0;
+            // TreeMap iteration is sorted, as required by the binary search in matches()
+            for (var entry : node.children.entrySet()) {
+                labels[node.index][e] = entry.getKey();
+                children[node.index][e] = entry.getValue().index;
+                e++;
+            }
+            terminal[node.index] = node.terminal;
+            tokenBoundary[node.index] = node.tokenBoundary;
+        }
+        return new CommandWhitelist(labels, children, terminal, tokenBoundary, size);
+    }
+
+    /**
+     * True if the list is empty (everything is allowed) or the command starts with an allowed prefix.
+     */
+    public boolean isAllowed(String command) {
+        return size == 0 || matches(command);
+    }
+
+    /**
+     * True if the command starts with one of the prefixes; never true for an empty list.
+     */
+    public boolean startsWithAny(String command) {
+        return size > 0 && matches(command);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private boolean matches(String command) {
+        int length = command.length();
+        int i = 0;
+        while (i < length && Character.isWhitespace(command.charAt(i))) {
+            i++;
+        }
+
+        int node = 0;
+        while (i < length) {
+            char c = command.charAt(i);
+            if (Character.isWhitespace(c)) {
+                c = ' ';
+                while (i + 1 < length && Character.isWhitespace(command.charAt(i + 1))) {
+                    i++;
+                }
+            } else {
+                c = Character.toLowerCase(c);
+            }
+            i++;
+
+            int edge = Arrays.binarySearch(labels[node], c);
+            if (edge < 0) {
+                return false;
+            }
+            node = children[node][edge];
+
+            if (terminal[node] && (!tokenBoundary[node] || i == length || Character.isWhitespace(command.charAt(i)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String normalize(String value) {
+        StringBuilder normalized = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.append(Character.toLowerCase(c));
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static final class Builder {
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+        private boolean terminal;
+        private boolean tokenBoundary;
+        private int index;
+    }
+}
@@ -0,0 +1,313 @@
+package me.millosaurs.webstoreApi;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Log of delivery events, honoring the logging.* switches in config.yml.
+ * Callers only hand over the values they already have; events are queued in a bounded
+ * lock-free ring buffer and formatted on a background thread. When the buffer is full the
+ * event is dropped and counted instead of blocking the caller.
+ */
+public class DeliveryEventLog {
+    private static final long PARK_NANOS = 10_000_000L;
+    private static final long DROP_REPORT_INTERVAL_NANOS = 10_000_000_000L;
+
+    enum Category { REQUEST, COMMAND, FAILURE }
+
+    enum Type {
+        DELIVERY_RECEIVED(Category.REQUEST, Level.INFO),
+        DELIVERY_DUPLICATE(Category.REQUEST, Level.INFO),
+        DELIVERY_COMMANDS(Category.REQUEST, Level.INFO),
+        DELIVERY_SUMMARY(Category.REQUEST, Level.INFO),
+        DELIVERY_COMPLETED(Category.REQUEST, Level.INFO),
+        BATCH_RECEIVED(Category.REQUEST, Level.INFO),
+        BATCH_COMPLETED(Category.REQUEST, Level.INFO),
+        COMMAND_PROCESSING(Category.COMMAND, Level.INFO),
+        COMMAND_EXECUTED(Category.COMMAND, Level.INFO),
+        ITEM_DELIVERED(Category.COMMAND, Level.INFO),
+        ITEM_QUEUED(Category.COMMAND, Level.INFO),
+        COMMAND_DEFERRED(Category.COMMAND, Level.INFO),
+        COMMAND_FAILED(Category.FAILURE, Level.WARNING),
+        DELIVERY_FAILED(Category.FAILURE, Level.WARNING),
+        REQUEST_REJECTED(Category.FAILURE, Level.WARNING);
+
+        private final Category category;
+        private final Level level;
+
+        Type(Category category, Level level) {
+            this.category = category;
+            this.level = level;
+        }
+    }
+
+    private static final class Event {
+        final Type type;
+        final int orderId;
+        final String subject;
+        final String detail;
+        final long first;
+        final long second;
+        final long third;
+        final Throwable error;
+
+        Event(Type type, int orderId, String subject, String detail, long first, long second, long third, Throwable error) {
+            this.type = type;
+            this.orderId = orderId;
+            this.subject = subject;
+            this.detail = detail;
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.error = error;
+        }
+    }
+
+    private final Logger logger;
+    private final boolean logRequests;
+    private final boolean logCommands;
+    private final boolean logFailures;
+    private final int sampleThreshold;
+
+    // Multi-producer / single-consumer ring: producers claim a sequence, the writer consumes in order
+    private final AtomicReferenceArray<Event> ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public DeliveryEventLog(Logger logger, boolean logRequests, boolean logCommands, boolean logFailures,
+                            double requestSampleRate, int bufferSize) {
+        this.logger = logger;
+        this.logRequests = logRequests && requestSampleRate > 0;
+        this.logCommands = logCommands;
+        this.logFailures = logFailures;
+        this.sampleThreshold = (int) Math.round(Math.min(1.0, Math.max(0.0, requestSampleRate)) * 65536);
+
+        int capacity = Integer.highestOneBit(Math.max(16, bufferSize - 1)) << 1;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+
+        this.writer = new Thread(this::drainLoop, "Webstore-Event-Log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void deliveryReceived(int orderId, String player) {
+        if (requestSampled(orderId)) {
+            publish(Type.DELIVERY_RECEIVED, orderId, player, null, 0, 0, 0, null);
+        }
+    }
+
+    public void duplicateOrder(int orderId) {
+        if (requestSampled(orderId)) {
+            publish(Type.DELIVERY_DUPLICATE, orderId, null, null, 0, 0, 0, null);
+        }
+    }
+
+    public void deliveryCommands(int orderId, String player, int commands) {
+        if (requestSampled(orderId)) {
+            publish(Type.DELIVERY_COMMANDS, orderId, player, null, commands, 0, 0, null);
+        }
+    }
+
+    public void deliverySummary(DeliveryResult result) {
+        if (requestSampled(orderIdOf(result))) {
+            publish(Type.DELIVERY_SUMMARY, orderIdOf(result), result.success ? "true" : "false", null,
+                    result.executedCommands.size(), result.failedCommands.size(), result.queuedCommands.size(), null);
+        }
+    }
+
+    public void deliveryCompleted(DeliveryResult result) {
+        if (!result.success) {
+            deliveryFailed(orderIdOf(result), result.error, null);
+        } else if (requestSampled(orderIdOf(result))) {
+            publish(Type.DELIVERY_COMPLETED, orderIdOf(result), result.minecraftUsername, null, 0, 0, 0, null);
+        }
+    }
+
+    public void deliveryFailed(int orderId, String reason, Throwable error) {
+        if (logFailures) {
+            publish(Type.DELIVERY_FAILED, orderId, null, reason, 0, 0, 0, error);
+        }
+    }
+
+    public void batchReceived(int accepted, int duplicates, int rejected) {
+        if (requestSampled(-1)) {
+            publish(Type.BATCH_RECEIVED, -1, null, null, accepted, duplicates, rejected, null);
+        }
+    }
+
+    public void batchCompleted(int succeeded, int failed) {
+        if (requestSampled(-1)) {
+            publish(Type.BATCH_COMPLETED, -1, null, null, succeeded, failed, 0, null);
+        }
+    }
+
+    public void commandProcessing(int orderId, String command) {
+        if (logCommands) {
+            publish(Type.COMMAND_PROCESSING, orderId, command, null, 0, 0, 0, null);
+        }
+    }
+
+    public void commandExecuted(int orderId, String command) {
+        if (logCommands) {
+            publish(Type.COMMAND_EXECUTED, orderId, command, null, 0, 0, 0, null);
+        }
+    }
+
+    public void itemDelivered(int orderId, String player, String material, int amount) {
+        if (logCommands) {
+            publish(Type.ITEM_DELIVERED, orderId, player, material, amount, 0, 0, null);
+        }
+    }
+
+    public void itemQueued(int orderId, String player, String material, int amount) {
+        if (logCommands) {
+            publish(Type.ITEM_QUEUED, orderId, player, material, amount, 0, 0, null);
+        }
+    }
+
+    public void commandDeferred(int orderId, String player, String command) {
+        if (logCommands) {
+            publish(Type.COMMAND_DEFERRED, orderId, player, command, 0, 0, 0, null);
+        }
+    }
+
+    public void commandFailed(int orderId, String command, String reason, Throwable error) {
+        if (logFailures) {
+            publish(Type.COMMAND_FAILED, orderId, command, reason, 0, 0, 0, error);
+        }
+    }
+
+    public void requestRejected(String kind, String reason) {
+        if (logFailures) {
+            publish(Type.REQUEST_REJECTED, -1, kind, reason, 0, 0, 0, null);
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops the writer and logs whatever is still buffered.
+     */
+    public void close(long timeoutSeconds) {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(timeoutSeconds * 1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Sampling is per order so all request lines of a sampled order are kept together
+    private boolean requestSampled(int orderId) {
+        if (!logRequests) {
+            return false;
+        }
+        if (sampleThreshold >= 65536) {
+            return true;
+        }
+        int h = orderId < 0 ? (int) System.nanoTime() : orderId * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & 0xFFFF) < sampleThreshold;
+    }
+
+    private static int orderIdOf(DeliveryResult result) {
+        return result.orderId != null ? result.orderId : -1;
+    }
+
+    private void publish(Type type, int orderId, String subject, String detail, long first, long second, long third, Throwable error) {
+        while (true) {
+            long sequence = tail.get();
+            if (sequence - head >= ring.length()) {
+                dropped.increment();
+                return;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                ring.set((int) (sequence & mask), new Event(type, orderId, subject, detail, first, second, third, error));
+                return;
+            }
+        }
+    }
+
+    // Writer thread only
+    private Event poll() {
+        int slot = (int) (head & mask);
+        Event event = ring.get(slot);
+        if (event != null) {
+            ring.lazySet(slot, null);
+            head = head + 1;
+        }
+        return event;
+    }
+
+    private void drainLoop() {
+        long reportedDrops = 0;
+        long lastDropReport = System.nanoTime();
+        while (true) {
+            Event event = poll();
+            if (event != null) {
+                write(event);
+                continue;
+            }
+
+            long drops = dropped.sum();
+            if (drops != reportedDrops && System.nanoTime() - lastDropReport >= DROP_REPORT_INTERVAL_NANOS) {
+                logger.warning("Dropped " + (drops - reportedDrops) + " delivery log events (log buffer full)");
+                reportedDrops = drops;
+                lastDropReport = System.nanoTime();
+            }
+
+            // A claimed slot may still be unpublished; only stop once everything claimed is written
+            if (!running && head == tail.get()) {
+                return;
+            }
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+    }
+
+    private void write(Event event) {
+        try {
+            String message = format(event);
+            if (event.error != null) {
+                logger.log(event.type.level, message, event.error);
+            } else {
+                logger.log(event.type.level, message);
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to write delivery log event " + event.type, e);
+        }
+    }
+
+    private static String format(Event event) {
+        return switch (event.type) {
+            case DELIVERY_RECEIVED -> "Processing delivery for order " + event.orderId + " to player " + event.subject;
+            case DELIVERY_DUPLICATE -> "Order " + event.orderId + " was already processed, returning the earlier result";
+            case DELIVERY_COMMANDS -> "Executing " + event.first + " commands for " + event.subject;
+            case DELIVERY_SUMMARY -> "Delivery summary for order " + event.orderId + " - Success: " + event.subject +
+                    ", Executed: " + event.first + ", Failed: " + event.second + ", Queued: " + event.third;
+            case DELIVERY_COMPLETED -> "Delivery completed successfully for order " + event.orderId + " (player: " + event.subject + ")";
+            case DELIVERY_FAILED -> "Delivery failed for order " + event.orderId + (event.detail != null ? ": " + event.detail : "");
+            case BATCH_RECEIVED -> "Processing batch of " + event.first + " orders (" + event.second + " duplicates, " +
+                    event.third + " rejected)";
+            case BATCH_COMPLETED -> "Batch delivery completed: " + event.first + " succeeded, " + event.second + " failed";
+            case COMMAND_PROCESSING -> "Processing command: " + event.subject;
+            case COMMAND_EXECUTED -> "Command executed successfully: " + event.subject;
+            case ITEM_DELIVERED -> "Delivered " + event.first + "x " + event.detail + " directly to online player " + event.subject;
+            case ITEM_QUEUED -> "Queued " + event.first + "x " + event.detail + " for offline player " + event.subject;
+            case COMMAND_DEFERRED -> "Deferred command until " + event.subject + " joins: " + event.detail;
+            case COMMAND_FAILED -> "Command failed for order " + event.orderId + ": " + event.subject + " (" + event.detail + ")";
+            case REQUEST_REJECTED -> "Rejected " + event.subject + " request: " + event.detail;
+        };
+    }
+}
@@ -0,0 +1,157 @@
+package me.millosaurs.webstoreApi;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written adapters for the delivery request / result bodies, so neither goes through
+ * Gson's reflective path. {@link #GSON} is immutable and shared by all HTTP threads.
+ */
+public final class DeliveryJson {
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(DeliveryRequest.class, new RequestAdapter(0).nullSafe())
+            .registerTypeAdapter(DeliveryResult.class, new ResultAdapter().nullSafe())
+            .create();
+
+    private DeliveryJson() {
+    }
+
+    /**
+     * Reads a /deliver body. With {@code maxCommands > 0} the command list is cut off while
+     * reading and the request rejected with 413.
+     */
+    static final class RequestAdapter extends TypeAdapter<DeliveryRequest> {
+        private final int maxCommands;
+
+        RequestAdapter(int maxCommands) {
+            this.maxCommands = maxCommands;
+        }
+
+        @Override
+        public DeliveryRequest read(JsonReader reader) throws IOException {
+            DeliveryRequest request = new DeliveryRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "orderId" -> request.orderId = reader.nextInt();
+                    case "minecraftUsername" -> request.minecraftUsername = reader.nextString();
+                    case "quantity" -> request.quantity = reader.nextInt();
+                    case "commands" -> request.commands = readCommands(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
+
+        private List<String> readCommands(JsonReader reader) throws IOException {
+            List<String> commands = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (maxCommands > 0 && commands.size() == maxCommands) {
+                    throw new DeliveryRequestReader.RejectedRequestException(413, "Too many commands in request (max " + maxCommands + ")");
+                }
+                commands.add(reader.nextString());
+            }
+            reader.endArray();
+            return commands;
+        }
+
+        @Override
+        public void write(JsonWriter writer, DeliveryRequest request) throws IOException {
+            writer.beginObject();
+            writer.name("orderId").value(request.orderId);
+            writer.name("minecraftUsername").value(request.minecraftUsername);
+            writeStrings(writer, "commands", request.commands);
+            if (request.quantity != null) {
+                writer.name("quantity").value(request.quantity);
+            }
+            writer.endObject();
+        }
+    }
+
+    // Same field order and null handling as the reflective output it replaces
+    static final class ResultAdapter extends TypeAdapter<DeliveryResult> {
+        @Override
+        public void write(JsonWriter writer, DeliveryResult result) throws IOException {
+            writer.beginObject();
+            if (result.orderId != null) {
+                writer.name("orderId").value(result.orderId);
+            }
+            if (result.minecraftUsername != null) {
+                writer.name("minecraftUsername").value(result.minecraftUsername);
+            }
+            writer.name("success").value(result.success);
+            if (result.error != null) {
+                writer.name("error").value(result.error);
+            }
+            writeStrings(writer, "executedCommands", result.executedCommands);
+            writeStrings(writer, "failedCommands", result.failedCommands);
+            writeStrings(writer, "queuedCommands", result.queuedCommands);
+            if (result.duplicate != null) {
+                writer.name("duplicate").value(result.duplicate);
+            }
+            writer.endObject();
+        }
+
+        @Override
+        public DeliveryResult read(JsonReader reader) throws IOException {
+            DeliveryResult result = new DeliveryResult();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "orderId" -> result.orderId = reader.nextInt();
+                    case "minecraftUsername" -> result.minecraftUsername = reader.nextString();
+                    case "success" -> result.success = reader.nextBoolean();
+                    case "error" -> result.error = reader.nextString();
+                    case "executedCommands" -> result.executedCommands = readStrings(reader);
+                    case "failedCommands" -> result.failedCommands = readStrings(reader);
+                    case "queuedCommands" -> result.queuedCommands = readStrings(reader);
+                    case "duplicate" -> result.duplicate = reader.nextBoolean();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return result;
+        }
+    }
+
+    private static void writeStrings(JsonWriter writer, String name, List<String> values) throws IOException {
+        if (values == null) {
+            return;
+        }
+        writer.name(name).beginArray();
+        for (String value : values) {
+            writer.value(value);
+        }
+        writer.endArray();
+    }
+
+    private static List<String> readStrings(JsonReader reader) throws IOException {
+        List<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            values.add(reader.nextString());
+        }
+        reader.endArray();
+        return values;
+    }
+}
@@ -0,0 +1,11 @@
+package me.millosaurs.webstoreApi;
+
+import java.util.List;
+
+// Body of a /deliver request
+class DeliveryRequest {
+    Integer orderId;
+    String minecraftUsername;
+    List<String> commands;
+    Integer quantity; // Optional, fills {quantity}
+}
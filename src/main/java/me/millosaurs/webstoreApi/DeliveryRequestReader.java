@@ -0,0 +1,164 @@
+package me.millosaurs.webstoreApi;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes delivery requests straight from the request body with a streaming JsonReader.
+ * The body size, command count and batch size limits are checked while reading, so an
+ * oversized payload is rejected before it is buffered.
+ */
+public class DeliveryRequestReader {
+    private final long maxBodyBytes;
+    private final DeliveryJson.RequestAdapter requestAdapter;
+    private final LatencyHistogram readLatency;
+    private final LatencyHistogram parseLatency;
+
+    public DeliveryRequestReader(long maxBodyBytes, int maxCommands, LatencyHistogram readLatency, LatencyHistogram parseLatency) {
+        this.maxBodyBytes = maxBodyBytes;
+        this.requestAdapter = new DeliveryJson.RequestAdapter(maxCommands);
+        this.readLatency = readLatency;
+        this.parseLatency = parseLatency;
+    }
+
+    public DeliveryRequest readOne(InputStream body, long contentLength) throws IOException {
+        long start = System.nanoTime();
+        BodyInputStream bodyStream = open(body, contentLength);
+        try (JsonReader reader = newReader(bodyStream)) {
+            DeliveryRequest request = readRequest(reader);
+            expectEnd(reader);
+            return request;
+        } catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+            throw invalidJson(e);
+        } finally {
+            recordTimings(start, bodyStream);
+        }
+    }
+
+    public DeliveryRequest[] readBatch(InputStream body, long contentLength, int maxOrders) throws IOException {
+        long start = System.nanoTime();
+        BodyInputStream bodyStream = open(body, contentLength);
+        try (JsonReader reader = newReader(bodyStream)) {
+            List<DeliveryRequest> requests = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (requests.size() == maxOrders) {
+                    throw new RejectedRequestException(413, "Too many orders in batch (max " + maxOrders + ")");
+                }
+                requests.add(readRequest(reader));
+            }
+            reader.endArray();
+            expectEnd(reader);
+            return requests.toArray(new DeliveryRequest[0]);
+        } catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+            throw invalidJson(e);
+        } finally {
+            recordTimings(start, bodyStream);
+        }
+    }
+
+    private BodyInputStream open(InputStream body, long contentLength) throws RejectedRequestException {
+        // Refuse declared oversized bodies without reading them at all
+        if (maxBodyBytes > 0 && contentLength > maxBodyBytes) {
+            throw tooLarge();
+        }
+        return new BodyInputStream(body, maxBodyBytes > 0 ? maxBodyBytes : Long.MAX_VALUE);
+    }
+
+    private static JsonReader newReader(InputStream body) {
+        return new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    // Reading and decoding are interleaved, so parse time is the total minus time blocked in reads
+    private void recordTimings(long start, BodyInputStream body) {
+        long total = System.nanoTime() - start;
+        readLatency.record(body.readNanos);
+        parseLatency.record(total - body.readNanos);
+    }
+
+    private DeliveryRequest readRequest(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return requestAdapter.read(reader);
+    }
+
+    private static void expectEnd(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new RejectedRequestException(400, "Invalid JSON format");
+        }
+    }
+
+    private static RejectedRequestException invalidJson(Exception cause) {
+        RejectedRequestException rejected = new RejectedRequestException(400, "Invalid JSON format");
+        rejected.initCause(cause);
+        return rejected;
+    }
+
+    private RejectedRequestException tooLarge() {
+        return new RejectedRequestException(413, "Request body too large (max " + maxBodyBytes + " bytes)");
+    }
+
+    /**
+     * A request refused before processing, with the HTTP status to answer.
+     */
+    public static class RejectedRequestException extends IOException {
+        private final int statusCode;
+
+        public RejectedRequestException(int statusCode, String message) {
+            super(message);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+
+    // Times the reads and fails as soon as more than the allowed number of bytes arrive
+    private class BodyInputStream extends FilterInputStream {
+        private long remaining;
+        private long readNanos;
+
+        BodyInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            readNanos += System.nanoTime() - start;
+            if (b >= 0 && --remaining < 0) {
+                throw tooLarge();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            int read = super.read(buffer, offset, length);
+            readNanos += System.nanoTime() - start;
+            if (read > 0) {
+                remaining -= read;
+                if (remaining < 0) {
+                    throw tooLarge();
+                }
+            }
+            return read;
+        }
+    }
+}
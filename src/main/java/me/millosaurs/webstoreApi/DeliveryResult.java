@@ -0,0 +1,34 @@
+package me.millosaurs.webstoreApi;
+
+import java.util.List;
+
+// Response body of a /deliver request
+class DeliveryResult {
+    Integer orderId;
+    String minecraftUsername;
+    boolean success;
+    String error;
+    List<String> executedCommands;
+    List<String> failedCommands;
+    List<String> queuedCommands;
+    Boolean duplicate; // Set when the order was already processed and nothing was executed again
+
+    // True once a command ran or was queued, i.e. running the order again would repeat something
+    boolean anyDispatched() {
+        return executedCommands != null && !executedCommands.isEmpty()
+                || queuedCommands != null && !queuedCommands.isEmpty();
+    }
+
+    DeliveryResult asDuplicate() {
+        DeliveryResult copy = new DeliveryResult();
+        copy.orderId = orderId;
+        copy.minecraftUsername = minecraftUsername;
+        copy.success = success;
+        copy.error = error;
+        copy.executedCommands = executedCommands;
+        copy.failedCommands = failedCommands;
+        copy.queuedCommands = queuedCommands;
+        copy.duplicate = true;
+        return copy;
+    }
+}
@@ -0,0 +1,153 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Main-thread work queue drained once per tick within a fixed time budget.
+ * Orders are split into one step per command, so a burst of large orders is spread
+ * over several ticks instead of running back-to-back in a single one.
+ */
+public class DeliveryScheduler {
+    private final Logger logger;
+    private final long budgetNanos;
+    private final LatencyHistogram waitLatency;
+    private final LatencyHistogram executionLatency;
+    private final Queue<Runnable> steps = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger backlog = new AtomicInteger();
+
+    private BukkitTask task;
+    private volatile long lastTickMicros;
+    private volatile int lastTickSteps;
+
+    public DeliveryScheduler(Logger logger, long budgetMicros, LatencyHistogram waitLatency, LatencyHistogram executionLatency) {
+        this.logger = logger;
+        this.budgetNanos = Math.max(1, budgetMicros) * 1000L;
+        this.waitLatency = waitLatency;
+        this.executionLatency = executionLatency;
+    }
+
+    public void start(Plugin plugin) {
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Stops ticking and runs everything still queued, so accepted orders are not dropped.
+     * Must be called on the main thread.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        Runnable step;
+        while ((step = steps.poll()) != null) {
+            backlog.decrementAndGet();
+            runStep(step);
+        }
+    }
+
+    /**
+     * Queues the given steps for main-thread execution, in order. The returned future is
+     * completed on the main thread with {@code completion}'s value once the last step has run.
+     * <p>
+     * Execution time is the sum of the steps' own run time; everything else between submitting
+     * and completing, including ticks spent waiting for budget between steps, counts as wait.
+     */
+    public <T> CompletableFuture<T> submit(List<Runnable> orderSteps, Supplier<T> completion) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long submitted = System.nanoTime();
+        long[] executed = new long[1]; // Only touched on the main thread
+
+        backlog.addAndGet(orderSteps.size() + 1);
+        for (Runnable step : orderSteps) {
+            steps.add(() -> {
+                long start = System.nanoTime();
+                try {
+                    step.run();
+                } finally {
+                    executed[0] += System.nanoTime() - start;
+                }
+            });
+        }
+        steps.add(() -> {
+            long start = System.nanoTime();
+            try {
+                T value = completion.get();
+                long end = System.nanoTime();
+                executed[0] += end - start;
+                executionLatency.record(executed[0]);
+                waitLatency.record(end - submitted - executed[0]);
+                future.complete(value);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Queues a single step behind the work already queued, without order timing.
+     * Used for join deliveries, so they share the per-tick budget with orders.
+     */
+    public void execute(Runnable step) {
+        backlog.incrementAndGet();
+        steps.add(step);
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        int executed = 0;
+
+        // Always make progress, even if a single step exceeds the budget
+        Runnable step;
+        while ((step = steps.poll()) != null) {
+            backlog.decrementAndGet();
+            runStep(step);
+            executed++;
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        lastTickMicros = executed == 0 ? 0 : (System.nanoTime() - start) / 1000L;
+        lastTickSteps = executed;
+    }
+
+    private void runStep(Runnable step) {
+        try {
+            step.run();
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "Delivery step failed", t);
+        }
+    }
+
+    public int getBacklog() {
+        return backlog.get();
+    }
+
+    public long getBudgetMicros() {
+        return budgetNanos / 1000L;
+    }
+
+    public long getLastTickMicros() {
+        return lastTickMicros;
+    }
+
+    public int getLastTickSteps() {
+        return lastTickSteps;
+    }
+}
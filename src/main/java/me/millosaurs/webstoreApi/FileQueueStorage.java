@@ -0,0 +1,177 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Whole-file backends: pending.yml or the binary pending.dat, rewritten by the background writer.
+ * In pending.yml, full items are stored once as base64 under {@code items} and referenced by id.
+ */
+public class FileQueueStorage extends MemoryQueueStorage {
+    private final Logger logger;
+    private final boolean binary;
+    private final File queueFile;
+    private final PendingQueueWriter writer;
+
+    public FileQueueStorage(File dataFolder, Logger logger, boolean binary,
+                            PendingQueueWriter.TickScheduler scheduler, long writeDelayTicks, LatencyHistogram flushLatency) {
+        this.logger = logger;
+        this.binary = binary;
+        this.queueFile = new File(dataFolder, binary ? "pending.dat" : "pending.yml");
+        this.writer = new PendingQueueWriter(queueFile, logger, scheduler, writeDelayTicks,
+                this::snapshot, snapshot -> PendingQueueWriter.writeAtomically(queueFile, encode(snapshot)), flushLatency);
+    }
+
+    @Override
+    public void load() throws IOException {
+        if (!queueFile.exists()) {
+            replaceAll(Map.of());
+            logger.info("No pending queue file found, starting with empty queue");
+            return;
+        }
+
+        replaceAll(binary ? BinaryQueueFormat.read(queueFile, logger) : readYaml(queueFile, logger));
+
+        logger.info("Loaded pending queue: " + getQueuedPlayersCount() + " players, " + getTotalQueuedEntries() + " queued entries");
+    }
+
+    @Override
+    protected void itemAdded(UUID playerId, PendingItem item) {
+        writer.markDirty();
+    }
+
+    @Override
+    protected void playerRemoved(UUID playerId) {
+        writer.markDirty();
+    }
+
+    @Override
+    protected void itemsReplaced(UUID playerId, List<PendingItem> items) {
+        writer.markDirty();
+    }
+
+    @Override
+    public void importAll(Map<UUID, List<PendingItem>> queue) throws IOException {
+        replaceAll(queue);
+        PendingQueueWriter.writeAtomically(queueFile, encode(queue));
+    }
+
+    private byte[] encode(Map<UUID, List<PendingItem>> queue) {
+        return binary ? BinaryQueueFormat.encode(queue) : toYaml(queue);
+    }
+
+    @Override
+    public void close(long timeoutSeconds) {
+        writer.close(timeoutSeconds);
+    }
+
+    static Map<UUID, List<PendingItem>> readYaml(File file, Logger logger) {
+        Map<UUID, List<PendingItem>> queue = new HashMap<>();
+        YamlConfiguration queueConfig = YamlConfiguration.loadConfiguration(file);
+
+        ConfigurationSection pending = queueConfig.getConfigurationSection("pending");
+        if (pending == null) {
+            return queue;
+        }
+
+        Map<String, ItemData> itemData = new HashMap<>();
+        ConfigurationSection itemSection = queueConfig.getConfigurationSection("items");
+        if (itemSection != null) {
+            for (String id : itemSection.getKeys(false)) {
+                try {
+                    itemData.put(id, ItemData.fromBase64(itemSection.getString(id, "")));
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Skipping invalid item " + id + " in queue: " + e.getMessage());
+                }
+            }
+        }
+
+        int nameKeys = 0;
+        for (String playerKey : pending.getKeys(false)) {
+            if (!PlayerKeys.isUuid(playerKey)) {
+                nameKeys++;
+            }
+            List<Map<?, ?>> itemMaps = queueConfig.getMapList("pending." + playerKey);
+            List<PendingItem> items = queue.computeIfAbsent(PlayerKeys.parse(playerKey), k -> new ArrayList<>());
+
+            for (Map<?, ?> itemMap : itemMaps) {
+                try {
+                    String materialName = (String) itemMap.get("material");
+                    int amount = ((Number) itemMap.get("amount")).intValue();
+                    String note = (String) itemMap.get("note");
+                    Object orders = itemMap.get("orders");
+                    Object itemId = itemMap.get("item");
+                    String command = (String) itemMap.get("command");
+
+                    Material material = Material.matchMaterial(materialName);
+                    if (material == null) {
+                        logger.warning("Skipping invalid material in queue: " + materialName);
+                    } else if (itemId != null && !itemData.containsKey(itemId.toString())) {
+                        logger.warning("Skipping queued " + materialName + " with missing item " + itemId);
+                    } else {
+                        // Entries without orders or an item come from older versions and may hold an "order N" note
+                        PendingItem item = orders == null && itemId == null && command == null
+                                ? PendingItem.fromYamlNote(material, amount, note)
+                                : new PendingItem(material, amount, PendingItem.parseOrderIds(orders != null ? orders.toString() : null),
+                                note, itemId != null ? itemData.get(itemId.toString()) : null, command);
+                        PendingItem.addTo(items, item);
+                    }
+                } catch (Exception e) {
+                    logger.warning("Error loading pending item for " + playerKey + ": " + e.getMessage());
+                }
+            }
+        }
+
+        queue.values().removeIf(List::isEmpty);
+        if (nameKeys > 0) {
+            logger.info(nameKeys + " player(s) in " + file.getName() + " are still keyed by name, their items move to their UUID when they join");
+        }
+        return queue;
+    }
+
+    static byte[] toYaml(Map<UUID, List<PendingItem>> snapshot) {
+        YamlConfiguration config = new YamlConfiguration();
+        Map<ItemData, Integer> itemIds = new LinkedHashMap<>();
+
+        for (Map.Entry<UUID, List<PendingItem>> entry : snapshot.entrySet()) {
+            List<PendingItem> items = entry.getValue();
+
+            List<Map<String, Object>> itemMaps = new ArrayList<>();
+            for (PendingItem item : items) {
+                Map<String, Object> itemMap = new LinkedHashMap<>();
+                itemMap.put("material", item.material.getKey().toString());
+                itemMap.put("amount", item.amount);
+                if (item.orderIds.length > 0) {
+                    itemMap.put("orders", PendingItem.formatOrderIds(item.orderIds));
+                }
+                if (item.note != null) {
+                    itemMap.put("note", item.note);
+                }
+                if (item.itemData != null) {
+                    itemMap.put("item", itemIds.computeIfAbsent(item.itemData, k -> itemIds.size()));
+                }
+                if (item.command != null) {
+                    itemMap.put("command", item.command);
+                }
+                itemMaps.add(itemMap);
+            }
+
+            config.set("pending." + entry.getKey(), itemMaps);
+        }
+        itemIds.forEach((itemData, id) -> config.set("items." + id, itemData.toBase64()));
+
+        return config.saveToString().getBytes(StandardCharsets.UTF_8);
+    }
+}
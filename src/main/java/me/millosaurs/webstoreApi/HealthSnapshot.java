@@ -0,0 +1,18 @@
+package me.millosaurs.webstoreApi;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Server health sampled on the main thread, kept with its JSON already encoded.
+ * A new instance replaces the old one on every refresh, so readers on the HTTP threads
+ * only ever do a volatile read.
+ */
+final class HealthSnapshot {
+    final int onlinePlayers;
+    final byte[] json;
+
+    HealthSnapshot(int onlinePlayers, String json) {
+        this.onlinePlayers = onlinePlayers;
+        this.json = json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,52 @@
+package me.millosaurs.webstoreApi;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the number of deliveries being processed at once. Requests over the limit are
+ * rejected immediately instead of queueing behind the main thread.
+ */
+public class InFlightLimiter {
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public InFlightLimiter(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public boolean tryAcquire() {
+        if (maxInFlight <= 0) {
+            inFlight.incrementAndGet();
+            return true; // Unlimited
+        }
+
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+}
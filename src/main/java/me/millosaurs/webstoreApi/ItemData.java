@@ -0,0 +1,95 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A full item (enchantments, name, custom data) as the bytes of {@link ItemStack#serializeAsBytes()},
+ * for give commands whose item carries components. It is encoded once when the item is queued and
+ * only turned back into a stack at delivery time.
+ * <p>
+ * Instances are interned, so every queue entry for the same kit item shares one byte array and
+ * identical items compare by reference; the storage formats keep each distinct item once.
+ */
+final class ItemData {
+    private static final int MAX_PARSED = 256;
+    private static final Map<String, ItemData> PARSED = new ConcurrentHashMap<>();
+    private static final Map<ItemData, WeakReference<ItemData>> INTERNED = new WeakHashMap<>();
+
+    final byte[] bytes; // Never modified
+    private final int hash;
+
+    private ItemData(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    static ItemData of(byte[] bytes) {
+        ItemData data = new ItemData(bytes);
+        synchronized (INTERNED) {
+            WeakReference<ItemData> existing = INTERNED.get(data);
+            ItemData shared = existing != null ? existing.get() : null;
+            if (shared != null) {
+                return shared;
+            }
+            INTERNED.put(data, new WeakReference<>(data));
+            return data;
+        }
+    }
+
+    // Stored for a single item, the amount lives in the queue entry
+    static ItemData of(ItemStack stack) {
+        ItemStack single = stack.clone();
+        single.setAmount(1);
+        return of(single.serializeAsBytes());
+    }
+
+    static ItemData fromBase64(String text) {
+        return of(Base64.getDecoder().decode(text));
+    }
+
+    /**
+     * Item argument of a give command, e.g. {@code diamond_sword{Enchantments:[...]}}. Parsed items
+     * are cached since orders repeat the same few commands. Main thread only.
+     *
+     * @throws IllegalArgumentException if the server cannot parse the item
+     */
+    static ItemData parse(String input) {
+        ItemData data = PARSED.get(input);
+        if (data == null) {
+            if (PARSED.size() >= MAX_PARSED) {
+                PARSED.clear();
+            }
+            data = of(Bukkit.getItemFactory().createItemStack(input));
+            PARSED.put(input, data);
+        }
+        return data;
+    }
+
+    ItemStack toStack(int amount) {
+        ItemStack stack = ItemStack.deserializeBytes(bytes);
+        stack.setAmount(amount);
+        return stack;
+    }
+
+    String toBase64() {
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof ItemData data && hash == data.hash && Arrays.equals(bytes, data.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,72 @@
+package me.millosaurs.webstoreApi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * In-memory queue persisted through {@link PendingJournal}: every mutation is one appended record.
+ */
+public class JournalQueueStorage extends MemoryQueueStorage {
+    private final File dataFolder;
+    private final Logger logger;
+    private final PendingJournal journal;
+
+    public JournalQueueStorage(File dataFolder, Logger logger, int compactThreshold, LatencyHistogram flushLatency) {
+        this.dataFolder = dataFolder;
+        this.logger = logger;
+        this.journal = new PendingJournal(dataFolder, logger, compactThreshold, flushLatency);
+    }
+
+    @Override
+    public void load() throws IOException {
+        File yamlFile = new File(dataFolder, "pending.yml");
+        if (!journal.exists() && yamlFile.exists()) {
+            // First start with the journal backend: carry over the existing pending.yml
+            journal.writeInitialSnapshot(FileQueueStorage.readYaml(yamlFile, logger));
+            logger.info("Imported pending.yml into the pending queue journal");
+        }
+
+        Map<UUID, List<PendingItem>> state = new HashMap<>();
+        journal.open(state);
+        replaceAll(state);
+
+        logger.info("Loaded pending queue journal: " + getQueuedPlayersCount() + " players, " + getTotalQueuedEntries() + " queued entries");
+    }
+
+    @Override
+    protected void itemAdded(UUID playerId, PendingItem item) {
+        journal.appendAdd(playerId, item);
+    }
+
+    @Override
+    protected void playerRemoved(UUID playerId) {
+        journal.appendRemove(playerId);
+    }
+
+    @Override
+    protected void itemsReplaced(UUID playerId, List<PendingItem> items) {
+        journal.appendSet(playerId, items);
+    }
+
+    @Override
+    public void importAll(Map<UUID, List<PendingItem>> queue) throws IOException {
+        for (UUID playerId : snapshot().keySet()) {
+            removePlayer(playerId);
+        }
+        for (Map.Entry<UUID, List<PendingItem>> entry : queue.entrySet()) {
+            for (PendingItem item : entry.getValue()) {
+                addItem(entry.getKey(), item);
+            }
+        }
+    }
+
+    @Override
+    public void close(long timeoutSeconds) {
+        journal.close(timeoutSeconds);
+    }
+}
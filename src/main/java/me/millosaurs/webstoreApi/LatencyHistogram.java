@@ -0,0 +1,52 @@
+package me.millosaurs.webstoreApi;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-bucketed latency histogram: bucket i counts durations up to 2^i microseconds.
+ * Recording is two striped LongAdder increments, so it is safe and cheap from any thread.
+ */
+public class LatencyHistogram {
+    // 1us .. 2^25us (~33s); anything slower only lands in the +Inf bucket
+    static final int BUCKETS = 26;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        long micros = (nanos + 999) / 1000;
+        int bucket = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+        buckets[Math.min(bucket, BUCKETS)].increment();
+        sumNanos.add(nanos);
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Appends this histogram in Prometheus text format, in seconds.
+     */
+    public void writePrometheus(StringBuilder out, String name, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += buckets[i].sum();
+            out.append(name).append("_bucket{le=\"").append((1L << i) / 1_000_000.0).append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += buckets[BUCKETS].sum();
+        out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum ").append(sumNanos.sum() / 1_000_000_000.0).append('\n');
+        out.append(name).append("_count ").append(cumulative).append('\n');
+    }
+}
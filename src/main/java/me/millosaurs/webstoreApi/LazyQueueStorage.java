@@ -0,0 +1,266 @@
+package me.millosaurs.webstoreApi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Binary backend that keeps only the player index of pending.dat in memory (storage.lazyLoad).
+ * A player's items are read from the file when they log in and dropped again once delivered, so
+ * heap use follows the players who are online rather than every unclaimed purchase.
+ * <p>
+ * Players changed since the last write are held in memory until the background writer folds them
+ * into a new file; unchanged players are copied into it without being decoded.
+ * <p>
+ * A player who was not preloaded (an offline give, an admin clear) is read from the file on the
+ * calling thread, which for the main thread means one seek and read of pending.dat per call.
+ */
+public class LazyQueueStorage implements QueueStorage {
+    // A preload nobody asked for within this time belongs to a login that never completed
+    private static final long UNCLAIMED_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private final File queueFile;
+    private final Logger logger;
+    private final PendingQueueWriter writer;
+    private final AtomicInteger totalEntries = new AtomicInteger();
+    private final AtomicInteger players = new AtomicInteger();
+
+    // Guarded by lock. Changes hold a player's full list (empty = removed) until it is in the file.
+    private final Object lock = new Object();
+    private final UuidMap<List<PendingItem>> changes = new UuidMap<>();
+    private final UuidMap<List<PendingItem>> resident = new UuidMap<>();
+    private final LinkedHashMap<UUID, Long> unclaimed = new LinkedHashMap<>(); // Preloaded, not read since, oldest first
+    private BinaryQueueFormat.Reader base;
+
+    public LazyQueueStorage(File dataFolder, Logger logger, PendingQueueWriter.TickScheduler scheduler,
+                            long writeDelayTicks, LatencyHistogram flushLatency) {
+        this.queueFile = new File(dataFolder, "pending.dat");
+        this.logger = logger;
+        this.writer = new PendingQueueWriter(queueFile, logger, scheduler, writeDelayTicks,
+                this::pendingChanges, this::writeChanges, flushLatency);
+    }
+
+    @Override
+    public void load() throws IOException {
+        synchronized (lock) {
+            changes.clear();
+            resident.clear();
+            unclaimed.clear();
+            base = queueFile.exists() ? BinaryQueueFormat.openIndex(queueFile, logger) : null;
+            players.set(base != null ? base.playerCount() : 0);
+            totalEntries.set(base != null ? (int) base.totalEntries() : 0);
+        }
+
+        logger.info("Loaded pending queue index: " + getQueuedPlayersCount() + " players, " + getTotalQueuedEntries() +
+                " queued entries (items are read from " + queueFile.getName() + " when a player joins)");
+    }
+
+    @Override
+    public List<PendingItem> getItems(UUID playerId) {
+        try {
+            synchronized (lock) {
+                unclaimed.remove(playerId);
+                return itemsOf(playerId);
+            }
+        } catch (UncheckedIOException e) {
+            logger.log(Level.SEVERE, "Failed to read queued items for " + playerId, e.getCause());
+            return List.of();
+        }
+    }
+
+    /**
+     * Reads the player's items ahead of their join; called from the async pre-login thread.
+     */
+    @Override
+    public void preload(UUID playerId) {
+        try {
+            synchronized (lock) {
+                long now = System.nanoTime();
+                dropUnclaimed(now);
+                if (changes.get(playerId) == null && resident.get(playerId) == null
+                        && base != null && base.contains(playerId)) {
+                    resident.put(playerId, List.copyOf(base.readItems(playerId)));
+                    unclaimed.put(playerId, now);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            logger.log(Level.WARNING, "Failed to preload queued items for " + playerId, e.getCause());
+        }
+    }
+
+    @Override
+    public void release(UUID playerId) {
+        synchronized (lock) {
+            resident.remove(playerId);
+            unclaimed.remove(playerId);
+        }
+    }
+
+    // A read failure here propagates, so a change is never built on top of items that could not be read
+    @Override
+    public void addItem(UUID playerId, PendingItem item) {
+        synchronized (lock) {
+            List<PendingItem> current = itemsOf(playerId);
+            List<PendingItem> next = new ArrayList<>(current);
+            PendingItem.addTo(next, item);
+            update(playerId, current, List.copyOf(next));
+        }
+        writer.markDirty();
+    }
+
+    @Override
+    public int removePlayer(UUID playerId) {
+        List<PendingItem> current;
+        synchronized (lock) {
+            current = itemsOf(playerId);
+            if (current.isEmpty()) {
+                return 0;
+            }
+            update(playerId, current, List.of());
+        }
+        writer.markDirty();
+        return current.size();
+    }
+
+    @Override
+    public void replaceItems(UUID playerId, List<PendingItem> items) {
+        if (items.isEmpty()) {
+            removePlayer(playerId);
+            return;
+        }
+
+        synchronized (lock) {
+            update(playerId, itemsOf(playerId), List.copyOf(items));
+        }
+        writer.markDirty();
+    }
+
+    @Override
+    public int getTotalQueuedEntries() {
+        return totalEntries.get();
+    }
+
+    @Override
+    public int getQueuedPlayersCount() {
+        return players.get();
+    }
+
+    /**
+     * Decodes the whole queue; only meant for export and migration.
+     */
+    @Override
+    public Map<UUID, List<PendingItem>> snapshot() {
+        synchronized (lock) {
+            Map<UUID, List<PendingItem>> queue = new LinkedHashMap<>();
+            if (base != null) {
+                queue.putAll(base.readAll());
+            }
+            changes.forEach(queue::put);
+            queue.values().removeIf(List::isEmpty);
+            return queue;
+        }
+    }
+
+    @Override
+    public void importAll(Map<UUID, List<PendingItem>> queue) throws IOException {
+        byte[] data = BinaryQueueFormat.encode(queue);
+        File temp = PendingQueueWriter.writeTemp(queueFile, data);
+        synchronized (lock) {
+            PendingQueueWriter.replace(temp, queueFile);
+            base = BinaryQueueFormat.openIndex(queueFile, data, logger);
+            changes.clear();
+            resident.clear();
+            unclaimed.clear();
+            players.set(base.playerCount());
+            totalEntries.set((int) base.totalEntries());
+        }
+    }
+
+    @Override
+    public void close(long timeoutSeconds) {
+        writer.close(timeoutSeconds);
+    }
+
+    private List<PendingItem> itemsOf(UUID playerId) {
+        List<PendingItem> items = changes.get(playerId);
+        if (items == null) {
+            items = resident.get(playerId);
+        }
+        if (items == null) {
+            items = base != null && base.contains(playerId) ? List.copyOf(base.readItems(playerId)) : List.of();
+        }
+        return items;
+    }
+
+    private void update(UUID playerId, List<PendingItem> before, List<PendingItem> after) {
+        changes.put(playerId, after);
+        resident.remove(playerId); // Delivered or changed: the copy in changes is the live one now
+        unclaimed.remove(playerId);
+
+        totalEntries.addAndGet(after.size() - before.size());
+        if (before.isEmpty() && !after.isEmpty()) {
+            players.incrementAndGet();
+        } else if (!before.isEmpty() && after.isEmpty()) {
+            players.decrementAndGet();
+        }
+    }
+
+    // Logins that were preloaded but never joined, e.g. the connection dropped before PlayerLoginEvent
+    private void dropUnclaimed(long now) {
+        Iterator<Map.Entry<UUID, Long>> it = unclaimed.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UUID, Long> entry = it.next();
+            if (now - entry.getValue() < UNCLAIMED_TIMEOUT_NANOS) {
+                break;
+            }
+            resident.remove(entry.getKey());
+            it.remove();
+        }
+    }
+
+    // Main thread, for the writer: everything changed since the file was last written
+    private Map<UUID, List<PendingItem>> pendingChanges() {
+        synchronized (lock) {
+            Map<UUID, List<PendingItem>> pending = new LinkedHashMap<>(Math.max(16, changes.size() * 4 / 3 + 1));
+            changes.forEach(pending::put);
+            return pending;
+        }
+    }
+
+    // I/O thread: the new file is written beside the old one, then swapped in together with its index
+    private void writeChanges(Map<UUID, List<PendingItem>> written) throws IOException {
+        BinaryQueueFormat.Reader current;
+        synchronized (lock) {
+            current = base;
+        }
+
+        // Only this thread replaces the file, so the current base stays readable while encoding
+        byte[] data;
+        if (current != null) {
+            data = BinaryQueueFormat.encode(current, written);
+        } else {
+            data = BinaryQueueFormat.encode(written);
+        }
+        File temp = PendingQueueWriter.writeTemp(queueFile, data);
+
+        synchronized (lock) {
+            PendingQueueWriter.replace(temp, queueFile);
+            base = BinaryQueueFormat.openIndex(queueFile, data, logger);
+            written.forEach((playerId, items) -> {
+                if (changes.get(playerId) == items) {
+                    changes.remove(playerId); // Not changed again while writing, so the file has it now
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package me.millosaurs.webstoreApi;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base for backends that keep the whole queue in memory and persist changes on the side.
+ * <p>
+ * Safe to read from any thread: players are striped over {@link #SHARDS} {@link UuidMap}s by UUID
+ * hash, each only touched while holding its own monitor, so readers on the HTTP and pre-login
+ * threads only contend when they hit the same shard. Each player's list is immutable and replaced
+ * on change, and the entry and player totals are counters maintained by every mutation, so size
+ * queries take no lock at all.
+ * <p>
+ * The persistence hooks run before the in-memory change, so a backend that cannot record a
+ * mutation rejects it by throwing and the queue never holds items that were not persisted.
+ */
+public abstract class MemoryQueueStorage implements QueueStorage {
+    private static final int SHARDS = 16; // Power of two
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final UuidMap<List<PendingItem>>[] shards = new UuidMap[SHARDS];
+    private final AtomicInteger totalEntries = new AtomicInteger();
+    private final AtomicInteger players = new AtomicInteger();
+
+    protected MemoryQueueStorage() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new UuidMap<>();
+        }
+    }
+
+    @Override
+    public List<PendingItem> getItems(UUID playerId) {
+        UuidMap<List<PendingItem>> shard = shardOf(playerId);
+        List<PendingItem> items;
+        synchronized (shard) {
+            items = shard.get(playerId);
+        }
+        return items != null ? items : List.of();
+    }
+
+    @Override
+    public void addItem(UUID playerId, PendingItem item) {
+        itemAdded(playerId, item);
+        UuidMap<List<PendingItem>> shard = shardOf(playerId);
+        synchronized (shard) {
+            List<PendingItem> current = shard.get(playerId);
+            List<PendingItem> next = current == null ? new ArrayList<>(1) : new ArrayList<>(current);
+            PendingItem.addTo(next, item);
+            next = List.copyOf(next);
+            shard.put(playerId, next);
+            changed(current, next);
+        }
+    }
+
+    @Override
+    public int removePlayer(UUID playerId) {
+        // Mutations all come from the main thread, so the player cannot change between these steps
+        if (getItems(playerId).isEmpty()) {
+            return 0;
+        }
+        playerRemoved(playerId);
+
+        UuidMap<List<PendingItem>> shard = shardOf(playerId);
+        List<PendingItem> removed;
+        synchronized (shard) {
+            removed = shard.remove(playerId);
+        }
+        if (removed == null) {
+            return 0;
+        }
+        changed(removed, null);
+        return removed.size();
+    }
+
+    @Override
+    public void replaceItems(UUID playerId, List<PendingItem> items) {
+        if (items.isEmpty()) {
+            removePlayer(playerId);
+            return;
+        }
+
+        List<PendingItem> next = List.copyOf(items);
+        itemsReplaced(playerId, next);
+        UuidMap<List<PendingItem>> shard = shardOf(playerId);
+        List<PendingItem> previous;
+        synchronized (shard) {
+            previous = shard.put(playerId, next);
+        }
+        changed(previous, next);
+    }
+
+    @Override
+    public int getTotalQueuedEntries() {
+        return totalEntries.get();
+    }
+
+    @Override
+    public int getQueuedPlayersCount() {
+        return players.get();
+    }
+
+    @Override
+    public Map<UUID, List<PendingItem>> snapshot() {
+        // The lists are immutable, so the snapshot can share them. Shards are copied one at a time;
+        // callers run on the main thread, where all mutations happen, so the result is consistent.
+        Map<UUID, List<PendingItem>> snapshot = new LinkedHashMap<>(Math.max(16, players.get() * 4 / 3 + 1));
+        for (UuidMap<List<PendingItem>> shard : shards) {
+            synchronized (shard) {
+                shard.forEach(snapshot::put);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Replaces the whole in-memory queue, e.g. after loading it from disk.
+     */
+    protected void replaceAll(Map<UUID, List<PendingItem>> queue) {
+        int items = 0;
+        int playerCount = 0;
+        for (UuidMap<List<PendingItem>> shard : shards) {
+            synchronized (shard) {
+                shard.clear();
+            }
+        }
+        for (Map.Entry<UUID, List<PendingItem>> entry : queue.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                UuidMap<List<PendingItem>> shard = shardOf(entry.getKey());
+                synchronized (shard) {
+                    shard.put(entry.getKey(), List.copyOf(entry.getValue()));
+                }
+                items += entry.getValue().size();
+                playerCount++;
+            }
+        }
+        totalEntries.set(items);
+        players.set(playerCount);
+    }
+
+    private UuidMap<List<PendingItem>> shardOf(UUID playerId) {
+        long bits = playerId.getMostSignificantBits() ^ playerId.getLeastSignificantBits();
+        return shards[(int) (bits ^ (bits >>> 32)) & (SHARDS - 1)];
+    }
+
+    // Keeps the totals in step with one player's list going from before to after (null = absent)
+    private void changed(List<PendingItem> before, List<PendingItem> after) {
+        int delta = (after == null ? 0 : after.size()) - (before == null ? 0 : before.size());
+        if (delta != 0) {
+            totalEntries.addAndGet(delta);
+        }
+        if (before == null && after != null) {
+            players.incrementAndGet();
+        } else if (before != null && after == null) {
+            players.decrementAndGet();
+        }
+    }
+
+    protected abstract void itemAdded(UUID playerId, PendingItem item);
+
+    protected abstract void playerRemoved(UUID playerId);
+
+    protected abstract void itemsReplaced(UUID playerId, List<PendingItem> items);
+}
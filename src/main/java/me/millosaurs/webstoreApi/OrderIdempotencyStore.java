@@ -0,0 +1,335 @@
+package me.millosaurs.webstoreApi;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Remembers processed orders so webstore retries are answered without running commands again.
+ * Recent results are kept in an in-memory LRU. Every processed order id is also appended
+ * (5 bytes: id + success flag) to orders.idx, so duplicates are still recognised after the
+ * LRU evicted them or after a restart.
+ * <p>
+ * An order none of whose commands ran (player offline with queueing off, queue unavailable, every
+ * command rejected) is not remembered, so the webstore's retry runs it once the cause is fixed.
+ */
+public class OrderIdempotencyStore {
+    private static final int RECORD_SIZE = 5;
+
+    private final Logger logger;
+    private final File indexFile;
+    private final int persistedCapacity;
+    private final Map<Integer, DeliveryResult> recentResults;
+    private final Map<Integer, CompletableFuture<DeliveryResult>> inFlight = new ConcurrentHashMap<>();
+    private final OrderIndex persistedIndex;
+    private final ExecutorService indexWriter;
+
+    private OutputStream indexOut;
+    private int recordsInFile;
+
+    public OrderIdempotencyStore(File dataFolder, Logger logger, int cacheSize, int persistedCapacity) {
+        this.logger = logger;
+        this.indexFile = new File(dataFolder, "orders.idx");
+        this.persistedCapacity = Math.max(1, persistedCapacity);
+        this.persistedIndex = new OrderIndex(this.persistedCapacity);
+        this.recentResults = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, DeliveryResult> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.indexWriter = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Webstore-Order-Index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void load() {
+        try {
+            if (indexFile.exists()) {
+                ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+                recordsInFile = records.remaining() / RECORD_SIZE;
+                while (records.remaining() >= RECORD_SIZE) {
+                    persistedIndex.put(records.getInt(), records.get() != 0);
+                }
+                logger.info("Loaded " + persistedIndex.size() + " processed order ids");
+            }
+
+            if (recordsInFile > persistedCapacity * 2) {
+                rewriteIndex();
+            }
+            openIndex();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to load processed order index", e);
+        }
+    }
+
+    /**
+     * Either makes the caller the owner of this order id (it must then call {@link #complete})
+     * or hands back the result of the earlier / concurrent delivery of the same order.
+     */
+    public Claim claim(int orderId) {
+        CompletableFuture<DeliveryResult> fresh = new CompletableFuture<>();
+        CompletableFuture<DeliveryResult> existing = inFlight.putIfAbsent(orderId, fresh);
+        if (existing != null) {
+            return new Claim(existing.thenApply(DeliveryResult::asDuplicate), false);
+        }
+
+        // Checked after registering so a delivery finishing in between cannot be missed
+        DeliveryResult completed = getCompleted(orderId);
+        if (completed != null) {
+            inFlight.remove(orderId, fresh);
+            fresh.complete(completed);
+            return new Claim(fresh, false);
+        }
+
+        return new Claim(fresh, true);
+    }
+
+    public void complete(int orderId, DeliveryResult result) {
+        if (!result.anyDispatched()) {
+            // Concurrent duplicates still get this answer, but the next retry is processed again
+            CompletableFuture<DeliveryResult> future = inFlight.remove(orderId);
+            if (future != null) {
+                future.complete(result);
+            }
+            return;
+        }
+
+        synchronized (recentResults) {
+            recentResults.put(orderId, result);
+        }
+        synchronized (persistedIndex) {
+            persistedIndex.put(orderId, result.success);
+        }
+        indexWriter.execute(() -> appendRecord(orderId, result.success));
+
+        CompletableFuture<DeliveryResult> future = inFlight.remove(orderId);
+        if (future != null) {
+            future.complete(result);
+        }
+    }
+
+    public void release(int orderId, Throwable error) {
+        CompletableFuture<DeliveryResult> future = inFlight.remove(orderId);
+        if (future != null) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Result of a processed order as originally returned, or null if unknown / still running.
+     */
+    public DeliveryResult find(int orderId) {
+        DeliveryResult completed = getCompleted(orderId);
+        if (completed != null) {
+            completed.duplicate = null;
+        }
+        return completed;
+    }
+
+    public boolean isInFlight(int orderId) {
+        return inFlight.containsKey(orderId);
+    }
+
+    private DeliveryResult getCompleted(int orderId) {
+        DeliveryResult cached;
+        synchronized (recentResults) {
+            cached = recentResults.get(orderId);
+        }
+        if (cached != null) {
+            return cached.asDuplicate();
+        }
+
+        Boolean success;
+        synchronized (persistedIndex) {
+            success = persistedIndex.get(orderId);
+        }
+        if (success == null) {
+            return null;
+        }
+
+        // Only the outcome survives eviction / restarts
+        DeliveryResult result = new DeliveryResult();
+        result.orderId = orderId;
+        result.success = success;
+        result.error = success ? null : "Order was already processed and failed";
+        result.duplicate = true;
+        return result;
+    }
+
+    public void close(long timeoutSeconds) {
+        indexWriter.execute(() -> {
+            try {
+                if (indexOut != null) {
+                    indexOut.close();
+                    indexOut = null;
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close processed order index", e);
+            }
+        });
+        indexWriter.shutdown();
+        try {
+            indexWriter.awaitTermination(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Index writer thread only
+    private void appendRecord(int orderId, boolean success) {
+        try {
+            if (indexOut == null) {
+                return;
+            }
+            indexOut.write(ByteBuffer.allocate(RECORD_SIZE).putInt(orderId).put((byte) (success ? 1 : 0)).array());
+            indexOut.flush();
+
+            if (++recordsInFile > persistedCapacity * 2) {
+                indexOut.close();
+                rewriteIndex();
+                openIndex();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to record processed order " + orderId, e);
+        }
+    }
+
+    // Drops ids that fell out of the in-memory index so the file stays bounded
+    private void rewriteIndex() throws IOException {
+        byte[] records;
+        synchronized (persistedIndex) {
+            ByteBuffer buffer = ByteBuffer.allocate(persistedIndex.size() * RECORD_SIZE);
+            persistedIndex.forEachInOrder((orderId, success) -> buffer.putInt(orderId).put((byte) (success ? 1 : 0)));
+            records = buffer.array();
+        }
+        PendingQueueWriter.writeAtomically(indexFile, records);
+        recordsInFile = records.length / RECORD_SIZE;
+    }
+
+    private void openIndex() throws IOException {
+        File folder = indexFile.getAbsoluteFile().getParentFile();
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        indexOut = new BufferedOutputStream(new FileOutputStream(indexFile, true));
+    }
+
+    public static final class Claim {
+        public final CompletableFuture<DeliveryResult> result;
+        public final boolean owner;
+
+        private Claim(CompletableFuture<DeliveryResult> result, boolean owner) {
+            this.result = result;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * Bounded int -> success map with open addressing. Once full, the oldest id is evicted.
+     */
+    static final class OrderIndex {
+        private static final int EMPTY = 0;
+        private static final byte FAILED = 1;
+        private static final byte SUCCEEDED = 2;
+
+        private final int[] keys;
+        private final byte[] states;
+        private final int[] insertionOrder;
+        private final int mask;
+        private int head;
+        private int size;
+
+        OrderIndex(int capacity) {
+            int tableSize = Integer.highestOneBit(Math.max(4, capacity * 2 - 1)) << 1;
+            this.keys = new int[tableSize];
+            this.states = new byte[tableSize];
+            this.insertionOrder = new int[capacity];
+            this.mask = tableSize - 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        Boolean get(int orderId) {
+            int slot = find(orderId);
+            return states[slot] == EMPTY ? null : states[slot] == SUCCEEDED;
+        }
+
+        void put(int orderId, boolean success) {
+            int slot = find(orderId);
+            if (states[slot] == EMPTY) {
+                if (size == insertionOrder.length) {
+                    remove(insertionOrder[head]);
+                    head = (head + 1) % insertionOrder.length;
+                    size--;
+                    slot = find(orderId);
+                }
+                insertionOrder[(head + size) % insertionOrder.length] = orderId;
+                size++;
+                keys[slot] = orderId;
+            }
+            states[slot] = success ? SUCCEEDED : FAILED;
+        }
+
+        void forEachInOrder(Visitor visitor) {
+            for (int i = 0; i < size; i++) {
+                int orderId = insertionOrder[(head + i) % insertionOrder.length];
+                visitor.accept(orderId, get(orderId));
+            }
+        }
+
+        interface Visitor {
+            void accept(int orderId, boolean success);
+        }
+
+        private int find(int orderId) {
+            int slot = mix(orderId) & mask;
+            while (states[slot] != EMPTY && keys[slot] != orderId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        private void remove(int orderId) {
+            int slot = find(orderId);
+            if (states[slot] == EMPTY) {
+                return;
+            }
+
+            int next = (slot + 1) & mask;
+            while (states[next] != EMPTY) {
+                int home = mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    keys[slot] = keys[next];
+                    states[slot] = states[next];
+                    slot = next;
+                }
+                next = (next + 1) & mask;
+            }
+            states[slot] = EMPTY;
+        }
+
+        private static int mix(int value) {
+            int h = value * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -2,23 +2,207 @@ package me.millosaurs.webstoreApi;
 
 import org.bukkit.Material;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One queued stack for a player. Identical items (same material, note and full item) from several
+ * orders are merged into a single entry that keeps the ids of the orders it came from.
+ * <p>
+ * An entry can also be a console command deferred until the player joins; its amount is the
+ * number of times the command runs.
+ */
 public class PendingItem {
+    private static final int[] NO_ORDERS = new int[0];
+
     public final Material material;
     public final int amount;
-    public final String note;
+    public final String note; // Free-form note, null when the item only came from webstore orders
+    public final int[] orderIds; // Sorted, without duplicates
+    final ItemData itemData; // Full item of a give command with components, null for a plain material
+    final String command; // Deferred console command, null for an item
 
-    public PendingItem(Material material, int amount, String note) {
+    public PendingItem(Material material, int amount, int[] orderIds, String note) {
+        this(material, amount, orderIds, note, null);
+    }
+
+    PendingItem(Material material, int amount, int[] orderIds, String note, ItemData itemData) {
+        this(material, amount, orderIds, note, itemData, null);
+    }
+
+    PendingItem(Material material, int amount, int[] orderIds, String note, ItemData itemData, String command) {
         this.material = material;
         this.amount = amount;
+        this.orderIds = normalize(orderIds);
         this.note = note;
+        this.itemData = itemData;
+        this.command = command;
+    }
+
+    public PendingItem(Material material, int amount, String note) {
+        this(material, amount, NO_ORDERS, note);
     }
 
     public PendingItem(Material material, int amount) {
-        this(material, amount, null);
+        this(material, amount, NO_ORDERS, null);
+    }
+
+    public static PendingItem forOrder(Material material, int amount, int orderId) {
+        return new PendingItem(material, amount, new int[]{orderId}, null);
+    }
+
+    static PendingItem forOrder(Material material, ItemData itemData, int amount, int orderId) {
+        return new PendingItem(material, amount, new int[]{orderId}, null, itemData);
+    }
+
+    /**
+     * Entry of a pending.yml written before order ids were stored, where an order's item carries
+     * an "order 123" note; that note is read as its order id, any other note is kept.
+     */
+    static PendingItem fromYamlNote(Material material, int amount, String note) {
+        int[] orderIds = orderIdsOf(note);
+        return new PendingItem(material, amount, orderIds, orderIds.length > 0 ? null : note);
+    }
+
+    // Stored with AIR as its material so every backend can keep it next to the items
+    static PendingItem forCommand(String command, int orderId) {
+        return new PendingItem(Material.AIR, 1, new int[]{orderId}, null, null, command);
+    }
+
+    boolean isCommand() {
+        return command != null;
+    }
+
+    public boolean canMerge(PendingItem other) {
+        return material == other.material && Objects.equals(note, other.note)
+                && Objects.equals(itemData, other.itemData) && Objects.equals(command, other.command) && (long) amount + other.amount <= Integer.MAX_VALUE;
+    }
+
+    public PendingItem merge(PendingItem other) {
+        return new PendingItem(material, amount + other.amount, union(orderIds, other.orderIds), note, itemData, command);
+    }
+
+    public PendingItem withAmount(int newAmount) {
+        return new PendingItem(material, newAmount, orderIds, note, itemData, command);
+    }
+
+    /**
+     * Adds the item to a player's list, merged into an identical entry when there is one.
+     */
+    public static void addTo(List<PendingItem> items, PendingItem item) {
+        for (int i = 0; i < items.size(); i++) {
+            PendingItem existing = items.get(i);
+            if (existing.canMerge(item)) {
+                items.set(i, existing.merge(item));
+                return;
+            }
+        }
+        items.add(item);
     }
 
     @Override
     public String toString() {
-        return amount + "x " + material.name() + (note != null ? " (" + note + ")" : "");
+        StringBuilder text = new StringBuilder().append(amount).append("x ");
+        if (command != null) {
+            text.append("command '").append(command).append('\'');
+        } else {
+            text.append(material.name());
+        }
+        if (itemData != null) {
+            text.append(" (custom item)");
+        }
+        if (orderIds.length > 0) {
+            text.append(orderIds.length == 1 ? " (order " : " (orders ");
+            for (int i = 0; i < orderIds.length; i++) {
+                text.append(i == 0 ? "" : ", ").append(orderIds[i]);
+            }
+            text.append(')');
+        }
+        if (note != null) {
+            text.append(" (").append(note).append(')');
+        }
+        return text.toString();
+    }
+
+    // Comma-separated order ids, the text form used by pending.yml and the sqlite backend
+    static String formatOrderIds(int[] ids) {
+        StringBuilder text = new StringBuilder(ids.length * 7);
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(ids[i]);
+        }
+        return text.toString();
+    }
+
+    static int[] parseOrderIds(String text) {
+        if (text == null || text.isBlank()) {
+            return NO_ORDERS;
+        }
+        String[] parts = text.split(",");
+        int[] ids = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ids[i] = Integer.parseInt(parts[i].trim());
+        }
+        return ids;
+    }
+
+    // Parses the "order 123" note, anything else is kept as a note
+    private static int[] orderIdsOf(String note) {
+        if (note == null || !note.startsWith("order ")) {
+            return NO_ORDERS;
+        }
+        try {
+            return new int[]{Integer.parseInt(note.substring(6).trim())};
+        } catch (NumberFormatException e) {
+            return NO_ORDERS;
+        }
+    }
+
+    private static int[] normalize(int[] ids) {
+        if (ids == null || ids.length == 0) {
+            return NO_ORDERS;
+        }
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] <= ids[i - 1]) {
+                return Arrays.stream(ids).sorted().distinct().toArray();
+            }
+        }
+        return ids;
+    }
+
+    // Sorted merge of two sorted, duplicate-free arrays
+    private static int[] union(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            return b;
+        }
+        if (a[a.length - 1] < b[0]) {
+            int[] joined = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, joined, a.length, b.length);
+            return joined;
+        }
+
+        int[] joined = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            joined[n++] = next;
+        }
+        return n == joined.length ? joined : Arrays.copyOf(joined, n);
     }
 }
\ No newline at end of file
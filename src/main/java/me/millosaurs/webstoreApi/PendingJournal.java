@@ -0,0 +1,555 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.Material;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only persistence for the pending queue.
+ * Every mutation is written as one small checksummed record to the active log segment.
+ * Once enough records pile up the segment is sealed and a background thread folds
+ * the previous snapshot plus the sealed segments into a new checksummed snapshot.
+ * The snapshot records the last segment it folded in, so segments left behind by a compaction
+ * that died before deleting them are skipped instead of being replayed a second time.
+ * A record that cannot be written fails the mutation with an {@link UncheckedIOException}, so
+ * nothing is acknowledged as queued unless it is in the journal.
+ * Players are written as their UUID string. Full items are written inline in records and once per distinct item
+ * in the snapshot's item dictionary; deferred commands are written inline.
+ */
+public class PendingJournal {
+    private static final int SNAPSHOT_MAGIC = 0x57535153; // "WSQS"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final byte OP_ADD = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_SET = 3;
+
+    private static final String SNAPSHOT_NAME = "pending.snapshot";
+    private static final String SEGMENT_NAME = "pending.journal";
+
+    private final File dataFolder;
+    private final Logger logger;
+    private final int compactThreshold;
+    private final LatencyHistogram flushLatency;
+    private final File snapshotFile;
+    private final File activeSegment;
+    private final ExecutorService compactor;
+
+    private DataOutputStream out; // Null while the active segment is not open
+    private long segmentLength; // Bytes of complete records in the active segment
+    private boolean closed;
+    private int recordsSinceCompaction;
+    private long nextSegmentId = 1;
+
+    public PendingJournal(File dataFolder, Logger logger, int compactThreshold, LatencyHistogram flushLatency) {
+        this.dataFolder = dataFolder;
+        this.logger = logger;
+        this.compactThreshold = Math.max(1, compactThreshold);
+        this.flushLatency = flushLatency;
+        this.snapshotFile = new File(dataFolder, SNAPSHOT_NAME);
+        this.activeSegment = new File(dataFolder, SEGMENT_NAME);
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Webstore-Journal-Compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean exists() {
+        return snapshotFile.exists() || activeSegment.exists() || !listSealedSegments().isEmpty();
+    }
+
+    /**
+     * Replays snapshot + sealed segments + active segment into the given map and opens
+     * the active segment for appending.
+     */
+    public void open(Map<UUID, List<PendingItem>> target) throws IOException {
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
+
+        target.clear();
+        long folded = readSnapshot(snapshotFile, target);
+
+        // Numbering continues after the folded segments even when they have all been deleted
+        nextSegmentId = folded + 1;
+        int replayed = 0;
+        for (File segment : listSealedSegments()) {
+            long id = segmentId(segment);
+            if (id > folded) {
+                replayed += replaySegment(segment, target);
+                nextSegmentId = Math.max(nextSegmentId, id + 1);
+            }
+        }
+
+        if (activeSegment.exists()) {
+            replayed += replaySegment(activeSegment, target, true);
+        }
+
+        segmentLength = activeSegment.length();
+        openSegment();
+        recordsSinceCompaction = replayed;
+
+        if (replayed > 0) {
+            logger.info("Replayed " + replayed + " journal records");
+            rotateAndCompact();
+        }
+    }
+
+    public void appendAdd(UUID playerId, PendingItem item) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        try (DataOutputStream record = new DataOutputStream(buffer)) {
+            record.writeByte(OP_ADD);
+            record.writeUTF(playerId.toString());
+            writeItem(record, item, null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append(buffer.toByteArray());
+    }
+
+    public void appendRemove(UUID playerId) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(32);
+        try (DataOutputStream record = new DataOutputStream(buffer)) {
+            record.writeByte(OP_REMOVE);
+            record.writeUTF(playerId.toString());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append(buffer.toByteArray());
+    }
+
+    public void appendSet(UUID playerId, List<PendingItem> items) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(32 + items.size() * 32);
+        try (DataOutputStream record = new DataOutputStream(buffer)) {
+            record.writeByte(OP_SET);
+            record.writeUTF(playerId.toString());
+            record.writeInt(items.size());
+            for (PendingItem item : items) {
+                writeItem(record, item, null);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append(buffer.toByteArray());
+    }
+
+    /**
+     * Seeds the journal with an existing queue, e.g. when switching over from pending.yml.
+     * Must be called before {@link #open(Map)}.
+     */
+    public void writeInitialSnapshot(Map<UUID, List<PendingItem>> state) throws IOException {
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
+        writeSnapshot(state, 0);
+    }
+
+    public void close(long timeoutSeconds) {
+        closed = true;
+        try {
+            if (out != null) {
+                out.flush();
+                out.close();
+                out = null;
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to close pending queue journal", e);
+        }
+
+        compactor.shutdown();
+        try {
+            if (!compactor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warning("Journal compaction did not finish in time, it will resume on next startup");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void append(byte[] payload) {
+        if (closed) {
+            throw new IllegalStateException("Pending queue journal is closed");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        long start = System.nanoTime();
+        try {
+            if (out == null) {
+                openSegment(); // A previous append or rotation failed, try again
+            }
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+            out.flush();
+            flushLatency.recordSince(start);
+            segmentLength += 8 + payload.length;
+        } catch (IOException e) {
+            closeSegment();
+            throw new UncheckedIOException("Failed to append to pending queue journal", e);
+        }
+
+        if (++recordsSinceCompaction >= compactThreshold) {
+            rotateAndCompact();
+        }
+    }
+
+    private void rotateAndCompact() {
+        closeSegment();
+        try {
+            File sealed = new File(dataFolder, SEGMENT_NAME + "." + String.format("%06d", nextSegmentId++));
+            Files.move(activeSegment.toPath(), sealed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            segmentLength = 0;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to seal pending queue journal segment", e);
+        }
+        try {
+            openSegment();
+        } catch (IOException e) {
+            // The next append retries and fails its mutation if the segment still cannot be opened
+            logger.log(Level.SEVERE, "Failed to reopen pending queue journal", e);
+        }
+
+        recordsSinceCompaction = 0;
+        compactor.execute(this::compact);
+    }
+
+    // Cuts off anything a failed append left behind, so later records are not hidden behind a torn one
+    private void openSegment() throws IOException {
+        FileOutputStream fileOut = new FileOutputStream(activeSegment, true);
+        try {
+            if (fileOut.getChannel().size() > segmentLength) {
+                fileOut.getChannel().truncate(segmentLength);
+            }
+        } catch (IOException e) {
+            fileOut.close();
+            throw e;
+        }
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+    }
+
+    private void closeSegment() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close pending queue journal segment", e);
+        }
+        out = null;
+    }
+
+    // Runs on the compactor thread; only touches sealed segments and the snapshot, never the live queue
+    private void compact() {
+        List<File> sealed = listSealedSegments();
+        if (sealed.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<UUID, List<PendingItem>> state = new LinkedHashMap<>();
+            long folded = readSnapshot(snapshotFile, state);
+            long last = folded;
+            for (File segment : sealed) {
+                long id = segmentId(segment);
+                if (id > folded) {
+                    replaySegment(segment, state);
+                }
+                last = Math.max(last, id);
+            }
+
+            // The snapshot names the last segment it contains, so deleting them below may fail or be cut short
+            writeSnapshot(state, last);
+
+            for (File segment : sealed) {
+                Files.deleteIfExists(segment.toPath());
+            }
+
+            int totalEntries = state.values().stream().mapToInt(List::size).sum();
+            logger.info("Compacted pending queue journal: " + sealed.size() + " segment(s), " +
+                    state.size() + " players, " + totalEntries + " entries");
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to compact pending queue journal", e);
+        }
+    }
+
+    private void writeSnapshot(Map<UUID, List<PendingItem>> state, long foldedSegment) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(buffer)) {
+            data.writeInt(SNAPSHOT_MAGIC);
+            data.writeInt(SNAPSHOT_VERSION);
+            data.writeLong(foldedSegment);
+
+            Map<ItemData, Integer> itemIds = new LinkedHashMap<>();
+            for (List<PendingItem> items : state.values()) {
+                for (PendingItem item : items) {
+                    if (item.itemData != null) {
+                        itemIds.putIfAbsent(item.itemData, itemIds.size());
+                    }
+                }
+            }
+            data.writeInt(itemIds.size());
+            for (ItemData itemData : itemIds.keySet()) {
+                data.writeInt(itemData.bytes.length);
+                data.write(itemData.bytes);
+            }
+
+            data.writeInt(state.size());
+            for (Map.Entry<UUID, List<PendingItem>> entry : state.entrySet()) {
+                data.writeUTF(entry.getKey().toString());
+                data.writeInt(entry.getValue().size());
+                for (PendingItem item : entry.getValue()) {
+                    writeItem(data, item, itemIds);
+                }
+            }
+        }
+
+        byte[] body = buffer.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        File temp = new File(dataFolder, SNAPSHOT_NAME + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream data = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            data.write(body);
+            data.writeLong(crc.getValue());
+            data.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(temp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Returns the id of the last segment folded into the snapshot, 0 if none
+    private long readSnapshot(File file, Map<UUID, List<PendingItem>> target) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        if (bytes.length < 8) {
+            throw new IOException("Pending queue snapshot is truncated");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        long expected = new DataInputStream(new ByteArrayInputStream(bytes, bytes.length - 8, 8)).readLong();
+        if (crc.getValue() != expected) {
+            throw new IOException("Pending queue snapshot checksum mismatch");
+        }
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+        if (data.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a pending queue snapshot: " + file.getName());
+        }
+        int version = data.readInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported pending queue snapshot version " + version);
+        }
+        long foldedSegment = data.readLong();
+
+        ItemData[] itemData = new ItemData[data.readInt()];
+        for (int i = 0; i < itemData.length; i++) {
+            itemData[i] = readItemData(data);
+        }
+
+        int players = data.readInt();
+        for (int i = 0; i < players; i++) {
+            UUID playerId = UUID.fromString(data.readUTF());
+            int count = data.readInt();
+            List<PendingItem> items = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                PendingItem item = readItem(data, itemData);
+                if (item != null) {
+                    PendingItem.addTo(items, item);
+                }
+            }
+            if (!items.isEmpty()) {
+                target.put(playerId, items);
+            }
+        }
+        return foldedSegment;
+    }
+
+    private int replaySegment(File segment, Map<UUID, List<PendingItem>> target) throws IOException {
+        return replaySegment(segment, target, false);
+    }
+
+    // Applies every intact record of a segment; a torn or corrupt tail is dropped (and truncated when requested)
+    private int replaySegment(File segment, Map<UUID, List<PendingItem>> target, boolean truncateTail) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment.toPath()));
+        int applied = 0;
+
+        while (buffer.remaining() > 0) {
+            int recordStart = buffer.position();
+            if (buffer.remaining() < 8) {
+                dropTail(segment, recordStart, truncateTail, "torn record");
+                break;
+            }
+
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                dropTail(segment, recordStart, truncateTail, "torn record");
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                dropTail(segment, recordStart, truncateTail, "checksum mismatch");
+                break;
+            }
+
+            applyRecord(payload, target);
+            applied++;
+        }
+
+        return applied;
+    }
+
+    private void dropTail(File segment, long validLength, boolean truncate, String reason) throws IOException {
+        logger.warning("Ignoring " + reason + " at offset " + validLength + " of " + segment.getName());
+        if (truncate) {
+            try (FileChannel channel = FileChannel.open(segment.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+    }
+
+    private void applyRecord(byte[] payload, Map<UUID, List<PendingItem>> target) throws IOException {
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = record.readByte();
+        UUID playerId = UUID.fromString(record.readUTF());
+
+        if (op == OP_ADD) {
+            PendingItem item = readItem(record, null);
+            if (item != null) {
+                PendingItem.addTo(target.computeIfAbsent(playerId, k -> new ArrayList<>()), item);
+            }
+        } else if (op == OP_REMOVE) {
+            target.remove(playerId);
+        } else if (op == OP_SET) {
+            int count = record.readInt();
+            List<PendingItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                PendingItem item = readItem(record, null);
+                if (item != null) {
+                    PendingItem.addTo(items, item);
+                }
+            }
+            if (items.isEmpty()) {
+                target.remove(playerId);
+            } else {
+                target.put(playerId, items);
+            }
+        } else {
+            logger.warning("Unknown journal record type " + op + " for " + playerId);
+        }
+    }
+
+    // The full item goes inline, or as id + 1 (0 = none) into itemIds when writing a snapshot
+    private void writeItem(DataOutputStream data, PendingItem item, Map<ItemData, Integer> itemIds) throws IOException {
+        data.writeUTF(item.material.getKey().toString());
+        data.writeInt(item.amount);
+        data.writeBoolean(item.note != null);
+        if (item.note != null) {
+            data.writeUTF(item.note);
+        }
+        data.writeInt(item.orderIds.length);
+        for (int orderId : item.orderIds) {
+            data.writeInt(orderId);
+        }
+        if (itemIds != null) {
+            data.writeInt(item.itemData == null ? 0 : itemIds.get(item.itemData) + 1);
+        } else {
+            data.writeBoolean(item.itemData != null);
+            if (item.itemData != null) {
+                data.writeInt(item.itemData.bytes.length);
+                data.write(item.itemData.bytes);
+            }
+        }
+        data.writeBoolean(item.command != null);
+        if (item.command != null) {
+            data.writeUTF(item.command);
+        }
+    }
+
+    private PendingItem readItem(DataInputStream data, ItemData[] itemIds) throws IOException {
+        String materialName = data.readUTF();
+        int amount = data.readInt();
+        String note = data.readBoolean() ? data.readUTF() : null;
+        int[] orderIds = new int[data.readInt()];
+        for (int i = 0; i < orderIds.length; i++) {
+            orderIds[i] = data.readInt();
+        }
+        ItemData itemData = null;
+        if (itemIds != null) {
+            int itemId = data.readInt();
+            itemData = itemId == 0 ? null : itemIds[itemId - 1];
+        } else if (data.readBoolean()) {
+            itemData = readItemData(data);
+        }
+        String command = data.readBoolean() ? data.readUTF() : null;
+
+        Material material = Material.matchMaterial(materialName);
+        if (material == null) {
+            logger.warning("Skipping invalid material in journal: " + materialName);
+            return null;
+        }
+        return new PendingItem(material, amount, orderIds, note, itemData, command);
+    }
+
+    private static ItemData readItemData(DataInputStream data) throws IOException {
+        byte[] bytes = new byte[data.readInt()];
+        data.readFully(bytes);
+        return ItemData.of(bytes);
+    }
+
+    private List<File> listSealedSegments() {
+        File[] files = dataFolder.listFiles((dir, name) -> name.startsWith(SEGMENT_NAME + ".") && !name.endsWith(".tmp"));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(segmentId(a), segmentId(b)));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    private static long segmentId(File segment) {
+        String name = segment.getName();
+        try {
+            return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
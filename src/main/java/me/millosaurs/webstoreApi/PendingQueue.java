@@ -1,145 +1,307 @@
 package me.millosaurs.webstoreApi;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
-import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
+/**
+ * Items waiting for offline players, keyed by player UUID so they follow a player across renames.
+ * Webstores only send names, so enqueueing resolves the name first (see {@link #resolve}).
+ */
 public class PendingQueue {
+    public static final List<String> BACKENDS = List.of("yaml", "binary", "journal", "sqlite");
+
     private final JavaPlugin plugin;
-    private final File queueFile;
-    private YamlConfiguration queueConfig;
-    private final Map<String, List<PendingItem>> pendingItems;
+    private final String backend;
+    private final LatencyHistogram flushLatency;
+    private volatile QueueStorage storage; // Size queries come from HTTP threads
+    private final Map<String, UUID> knownPlayers = new ConcurrentHashMap<>(); // Lowercased name -> UUID, updated on join
 
-    public PendingQueue(JavaPlugin plugin) {
+    public PendingQueue(JavaPlugin plugin, LatencyHistogram flushLatency) {
         this.plugin = plugin;
-        this.queueFile = new File(plugin.getDataFolder(), "pending.yml");
-        this.pendingItems = new HashMap<>();
+        this.flushLatency = flushLatency;
+        this.backend = plugin.getConfig().getString("storage.backend", "yaml").toLowerCase();
     }
 
-    public void load() {
-        pendingItems.clear();
-
-        if (!queueFile.exists()) {
-            plugin.getLogger().info("No pending queue file found, starting with empty queue");
-            queueConfig = new YamlConfiguration();
-            return;
+    /**
+     * Loads the configured backend. When it cannot be loaded the queue stays unavailable rather
+     * than writing new items somewhere else, which would split the queue across two stores.
+     *
+     * @return false if the queue is unavailable and offline queueing must stay off
+     */
+    public boolean load() {
+        if (!BACKENDS.contains(backend)) {
+            plugin.getLogger().warning("Unknown storage.backend '" + backend + "', falling back to yaml");
         }
 
+        QueueStorage loading = createStorage(backend);
         try {
-            queueConfig = YamlConfiguration.loadConfiguration(queueFile);
-
-            if (queueConfig.contains("pending")) {
-                for (String playerName : queueConfig.getConfigurationSection("pending").getKeys(false)) {
-                    List<Map<?, ?>> itemMaps = queueConfig.getMapList("pending." + playerName);
-                    List<PendingItem> items = new ArrayList<>();
-
-                    for (Map<?, ?> itemMap : itemMaps) {
-                        try {
-                            String materialName = (String) itemMap.get("material");
-                            int amount = ((Number) itemMap.get("amount")).intValue();
-                            String note = (String) itemMap.get("note");
-
-                            Material material = Material.matchMaterial(materialName);
-                            if (material != null) {
-                                items.add(new PendingItem(material, amount, note));
-                            } else {
-                                plugin.getLogger().warning("Skipping invalid material in queue: " + materialName);
-                            }
-                        } catch (Exception e) {
-                            plugin.getLogger().warning("Error loading pending item for " + playerName + ": " + e.getMessage());
-                        }
-                    }
-
-                    if (!items.isEmpty()) {
-                        pendingItems.put(playerName, items);
-                    }
-                }
+            if ("binary".equals(backend)) {
+                convertLegacyYaml(loading);
             }
+            loading.load();
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load the pending queue from " + backend + " storage. " +
+                    "Offline queueing is disabled until the file is repaired, restored or migrated " +
+                    "(/webstore migrate), then restart the server", e);
+            loading.close(0);
+            return false;
+        }
+        storage = loading;
+        return true;
+    }
 
-            int totalItems = pendingItems.values().stream().mapToInt(List::size).sum();
-            plugin.getLogger().info("Loaded pending queue: " + pendingItems.size() + " players, " + totalItems + " total items");
+    public boolean isAvailable() {
+        return storage != null;
+    }
 
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to load pending queue file", e);
-            queueConfig = new YamlConfiguration();
+    // One-shot conversion; the YAML file is kept as pending.yml.migrated for reference
+    private void convertLegacyYaml(QueueStorage target) throws IOException {
+        File yamlFile = new File(plugin.getDataFolder(), "pending.yml");
+        if (new File(plugin.getDataFolder(), "pending.dat").exists() || !yamlFile.exists()) {
+            return;
         }
+
+        QueueStorage yaml = createStorage("yaml");
+        yaml.load();
+        target.importAll(yaml.snapshot());
+        yaml.close(0);
+
+        if (!yamlFile.renameTo(new File(plugin.getDataFolder(), "pending.yml.migrated"))) {
+            plugin.getLogger().warning("Could not rename pending.yml after migration, it will be ignored from now on");
+        }
+        plugin.getLogger().info("Migrated pending.yml to pending.dat");
     }
 
-    public void save() {
-        try {
-            // Ensure data folder exists
-            if (!plugin.getDataFolder().exists()) {
-                plugin.getDataFolder().mkdirs();
+    public String getBackend() {
+        return backend;
+    }
+
+    private QueueStorage createStorage(String name) {
+        File dataFolder = plugin.getDataFolder();
+        switch (name) {
+            case "journal":
+                return new JournalQueueStorage(dataFolder, plugin.getLogger(),
+                        plugin.getConfig().getInt("storage.journal.compactThreshold", 5000), flushLatency);
+            case "sqlite":
+                return new SqlQueueStorage(dataFolder, plugin.getLogger(), flushLatency);
+            default:
+                if ("binary".equals(name) && plugin.getConfig().getBoolean("storage.lazyLoad", false)) {
+                    return new LazyQueueStorage(dataFolder, plugin.getLogger(),
+                            (task, delay) -> Bukkit.getScheduler().runTaskLater(plugin, task, delay),
+                            plugin.getConfig().getLong("storage.writeDelayTicks", 20), flushLatency);
+                }
+                return new FileQueueStorage(dataFolder, plugin.getLogger(), "binary".equals(name),
+                        (task, delay) -> Bukkit.getScheduler().runTaskLater(plugin, task, delay),
+                        plugin.getConfig().getLong("storage.writeDelayTicks", 20), flushLatency);
+        }
+    }
+
+    /**
+     * Writes the current queue as human-readable YAML, independent of the configured backend.
+     */
+    public void exportYaml(File target) {
+        Map<UUID, List<PendingItem>> snapshot = requireStorage().snapshot();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                PendingQueueWriter.writeAtomically(target, FileQueueStorage.toYaml(snapshot));
+                plugin.getLogger().info("Exported pending queue to " + target.getName());
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to export pending queue", e);
             }
+        });
+    }
+
+    /**
+     * Copies every queued item from one backend to another. The active backend can be used as
+     * the source (its live state is copied) but not as the target.
+     */
+    public void migrate(String from, String to, Runnable onComplete) {
+        if (to.equals(backend)) {
+            throw new IllegalArgumentException("Cannot migrate into the active backend '" + backend + "'");
+        }
 
-            queueConfig = new YamlConfiguration();
-
-            if (!pendingItems.isEmpty()) {
-                for (Map.Entry<String, List<PendingItem>> entry : pendingItems.entrySet()) {
-                    String playerName = entry.getKey();
-                    List<PendingItem> items = entry.getValue();
-
-                    List<Map<String, Object>> itemMaps = new ArrayList<>();
-                    for (PendingItem item : items) {
-                        Map<String, Object> itemMap = new HashMap<>();
-                        itemMap.put("material", item.material.getKey().toString());
-                        itemMap.put("amount", item.amount);
-                        if (item.note != null) {
-                            itemMap.put("note", item.note);
-                        }
-                        itemMaps.add(itemMap);
-                    }
-
-                    queueConfig.set("pending." + playerName, itemMaps);
+        // An active backend that failed to load is read from its files again (and fails with a logged error)
+        QueueStorage current = storage;
+        Map<UUID, List<PendingItem>> liveSnapshot = from.equals(backend) && current != null ? current.snapshot() : null;
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            long timeoutSeconds = plugin.getConfig().getLong("storage.shutdownTimeoutSeconds", 10);
+            try {
+                Map<UUID, List<PendingItem>> queue = liveSnapshot;
+                if (queue == null) {
+                    QueueStorage source = createStorage(from);
+                    source.load();
+                    queue = source.snapshot();
+                    source.close(timeoutSeconds);
                 }
+
+                QueueStorage target = createStorage(to);
+                target.load();
+                target.importAll(queue);
+                target.close(timeoutSeconds);
+
+                int totalEntries = queue.values().stream().mapToInt(List::size).sum();
+                plugin.getLogger().info("Migrated " + queue.size() + " players, " + totalEntries + " entries from " + from + " to " + to);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to migrate pending queue from " + from + " to " + to, e);
             }
+            onComplete.run();
+        });
+    }
 
-            queueConfig.save(queueFile);
+    public void addItem(String playerName, Material material, int amount, String note) {
+        addItem(playerName, new PendingItem(material, amount, note));
+    }
 
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to save pending queue file", e);
+    public void addItem(String playerName, Material material, int amount, int orderId) {
+        addItem(playerName, PendingItem.forOrder(material, amount, orderId));
+    }
+
+    /**
+     * Queues a give command's item; {@code itemData} is the full item when it has components.
+     */
+    void addItem(String playerName, Material material, ItemData itemData, int amount, int orderId) {
+        addItem(playerName, PendingItem.forOrder(material, itemData, amount, orderId));
+    }
+
+    /**
+     * Defers an expanded console command until the player joins.
+     */
+    public void addCommand(String playerName, String command, int orderId) {
+        addItem(playerName, PendingItem.forCommand(command, orderId));
+    }
+
+    // Merged into the player's identical entry by the storage, if there is one. Not logged here:
+    // callers report it through DeliveryEventLog (itemQueued, commandDeferred), which honours logCommands
+    private void addItem(String playerName, PendingItem item) {
+        requireStorage().addItem(resolve(playerName), item);
+    }
+
+    /**
+     * UUID of the named player: from players seen joining, then the server's user cache.
+     * A name the server has never seen gets a placeholder that is claimed on join.
+     */
+    public UUID resolve(String playerName) {
+        String key = playerName.toLowerCase(Locale.ROOT);
+        UUID known = knownPlayers.get(key);
+        if (known != null) {
+            return known;
         }
+
+        OfflinePlayer cached = Bukkit.getOfflinePlayerIfCached(playerName);
+        if (cached != null) {
+            knownPlayers.put(key, cached.getUniqueId());
+            return cached.getUniqueId();
+        }
+        return PlayerKeys.placeholder(playerName);
     }
 
-    public void addItem(String playerName, Material material, int amount, String note) {
-        String lowerPlayerName = playerName.toLowerCase();
+    /**
+     * Records the player's current name and moves anything queued under their name before the
+     * server knew them (or by an older, name-keyed version of the plugin) to their UUID.
+     */
+    public void playerJoined(Player player) {
+        UUID playerId = player.getUniqueId();
+        knownPlayers.put(player.getName().toLowerCase(Locale.ROOT), playerId);
+        QueueStorage current = storage;
+        if (current == null) {
+            return;
+        }
 
-        pendingItems.computeIfAbsent(lowerPlayerName, k -> new ArrayList<>())
-                .add(new PendingItem(material, amount, note));
+        UUID placeholder = PlayerKeys.placeholder(player.getName());
+        List<PendingItem> unclaimed = current.getItems(placeholder);
+        if (unclaimed.isEmpty()) {
+            return;
+        }
 
-        save(); // Save immediately to avoid data loss
+        List<PendingItem> merged = new ArrayList<>(current.getItems(playerId));
+        for (PendingItem item : unclaimed) {
+            PendingItem.addTo(merged, item);
+        }
+        current.replaceItems(playerId, merged);
+        current.removePlayer(placeholder);
 
-        plugin.getLogger().info("Added to queue: " + amount + "x " + material.name() + " for " + playerName +
-                (note != null ? " (note: " + note + ")" : ""));
+        plugin.getLogger().info("Moved " + unclaimed.size() + " queued item(s) for " + player.getName() + " to " + playerId);
     }
 
-    public List<PendingItem> getItems(String playerName) {
-        return pendingItems.getOrDefault(playerName.toLowerCase(), new ArrayList<>());
+    /**
+     * Lets the storage read the player's items before they join; safe to call off the main thread.
+     */
+    public void preload(UUID playerId, String playerName) {
+        QueueStorage current = storage;
+        if (current != null) {
+            current.preload(playerId);
+            current.preload(PlayerKeys.placeholder(playerName));
+        }
+    }
+
+    /**
+     * Drops what {@link #preload} read, once the player has left or their login was refused.
+     */
+    public void release(UUID playerId, String playerName) {
+        QueueStorage current = storage;
+        if (current != null) {
+            current.release(playerId);
+            current.release(PlayerKeys.placeholder(playerName));
+        }
+    }
+
+    public List<PendingItem> getItems(UUID playerId) {
+        QueueStorage current = storage;
+        return current != null ? current.getItems(playerId) : List.of();
+    }
+
+    public void removePlayer(UUID playerId) {
+        int removed = requireStorage().removePlayer(playerId);
+
+        if (removed > 0) {
+            plugin.getLogger().info("Removed " + removed + " queued items for " + playerId);
+        }
     }
 
-    public void removePlayer(String playerName) {
-        String lowerPlayerName = playerName.toLowerCase();
-        List<PendingItem> removed = pendingItems.remove(lowerPlayerName);
+    /**
+     * Replaces a player's queued items with what is left after a delivery.
+     */
+    public void replaceItems(UUID playerId, List<PendingItem> remaining) {
+        requireStorage().replaceItems(playerId, remaining);
+    }
+
+    private QueueStorage requireStorage() {
+        QueueStorage current = storage;
+        if (current == null) {
+            throw new IllegalStateException("Pending queue is not available, its storage failed to load");
+        }
+        return current;
+    }
 
-        if (removed != null && !removed.isEmpty()) {
-            save(); // Save immediately after removal
-            plugin.getLogger().info("Removed " + removed.size() + " queued items for " + playerName);
+    public void close() {
+        if (storage != null) {
+            storage.close(plugin.getConfig().getLong("storage.shutdownTimeoutSeconds", 10));
+            storage = null;
         }
     }
 
-    public int getTotalQueuedItems() {
-        return pendingItems.values().stream().mapToInt(List::size).sum();
+    // Counters kept by the storage, safe and cheap to call from any thread
+    public int getTotalQueuedEntries() {
+        QueueStorage current = storage;
+        return current != null ? current.getTotalQueuedEntries() : 0;
     }
 
     public int getQueuedPlayersCount() {
-        return pendingItems.size();
+        QueueStorage current = storage;
+        return current != null ? current.getQueuedPlayersCount() : 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+package me.millosaurs.webstoreApi;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind persister for whole-file queue formats.
+ * Mutations only mark the queue dirty; after the configured delay one immutable snapshot is
+ * taken on the main thread and serialized + written on a dedicated I/O thread, so any number
+ * of changes inside the window cost a single write. Files are replaced via temp file, fsync
+ * and atomic rename so a crash mid-write never leaves a half-written queue behind.
+ */
+public class PendingQueueWriter {
+
+    public interface TickScheduler {
+        void runLater(Runnable task, long delayTicks);
+    }
+
+    /**
+     * Persists one snapshot; runs on the I/O thread.
+     */
+    public interface Sink {
+        void write(Map<UUID, List<PendingItem>> snapshot) throws IOException;
+    }
+
+    private final File targetFile;
+    private final Logger logger;
+    private final TickScheduler scheduler;
+    private final long delayTicks;
+    private final Supplier<Map<UUID, List<PendingItem>>> snapshotSupplier;
+    private final Sink sink;
+    private final LatencyHistogram flushLatency;
+    private final ExecutorService ioExecutor;
+    private final AtomicReference<Map<UUID, List<PendingItem>>> latestSnapshot = new AtomicReference<>();
+
+    private boolean dirty;
+    private boolean flushScheduled;
+
+    public PendingQueueWriter(File targetFile, Logger logger, TickScheduler scheduler, long delayTicks,
+                              Supplier<Map<UUID, List<PendingItem>>> snapshotSupplier, Sink sink,
+                              LatencyHistogram flushLatency) {
+        this.targetFile = targetFile;
+        this.logger = logger;
+        this.scheduler = scheduler;
+        this.delayTicks = Math.max(0, delayTicks);
+        this.snapshotSupplier = snapshotSupplier;
+        this.sink = sink;
+        this.flushLatency = flushLatency;
+        this.ioExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Webstore-Queue-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Main thread only
+    public void markDirty() {
+        dirty = true;
+        if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.runLater(this::submitSnapshot, delayTicks);
+        }
+    }
+
+    /**
+     * Writes any outstanding changes and stops the I/O thread, waiting at most the given time.
+     */
+    public void close(long timeoutSeconds) {
+        submitSnapshot();
+        ioExecutor.shutdown();
+        try {
+            if (!ioExecutor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                logger.severe("Timed out after " + timeoutSeconds + "s waiting for " + targetFile.getName() + " to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submitSnapshot() {
+        flushScheduled = false;
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        // Only the newest snapshot matters; an older one still waiting for the I/O thread is skipped
+        if (latestSnapshot.getAndSet(snapshotSupplier.get()) == null) {
+            ioExecutor.execute(this::writeLatest);
+        }
+    }
+
+    private void writeLatest() {
+        Map<UUID, List<PendingItem>> snapshot = latestSnapshot.getAndSet(null);
+        if (snapshot == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            sink.write(snapshot);
+            flushLatency.recordSince(start);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to save pending queue file", e);
+        }
+    }
+
+    static void writeAtomically(File target, byte[] data) throws IOException {
+        replace(writeTemp(target, data), target);
+    }
+
+    // Writes and syncs the data next to the target; the target itself is untouched until replace()
+    static File writeTemp(File target, byte[] data) throws IOException {
+        File folder = target.getAbsoluteFile().getParentFile();
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+
+        File temp = new File(folder, target.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        return temp;
+    }
+
+    static void replace(File temp, File target) throws IOException {
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,34 @@
+package me.millosaurs.webstoreApi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Queue keys are player UUIDs. A player the server has never seen has no known UUID yet, so
+ * their items are kept under a placeholder derived from the lowercased name and moved to the
+ * real UUID when they join. Name keys written by older versions map to the same placeholder.
+ */
+final class PlayerKeys {
+    private PlayerKeys() {
+    }
+
+    static UUID placeholder(String playerName) {
+        return UUID.nameUUIDFromBytes(("webstore:" + playerName.toLowerCase(Locale.ROOT)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Key as stored in pending.yml: a UUID, or a lowercased player name from before the queue was UUID-keyed.
+     */
+    static UUID parse(String storedKey) {
+        if (isUuid(storedKey)) {
+            return UUID.fromString(storedKey);
+        }
+        return placeholder(storedKey);
+    }
+
+    // Player names cannot contain '-', so this never mistakes a name for a UUID
+    static boolean isUuid(String storedKey) {
+        return storedKey.length() == 36 && storedKey.charAt(8) == '-' && storedKey.charAt(13) == '-';
+    }
+}
@@ -0,0 +1,64 @@
+package me.millosaurs.webstoreApi;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Storage backend behind {@link PendingQueue}. Keys are player UUIDs (see {@link PlayerKeys}).
+ * Mutations are called from the main server thread; the size queries are cheap counters that
+ * any thread may call. A mutation the backend cannot persist throws and leaves the queue as it
+ * was, so the caller can report the order as failed instead of losing it.
+ */
+public interface QueueStorage {
+
+    void load() throws IOException;
+
+    List<PendingItem> getItems(UUID playerId);
+
+    void addItem(UUID playerId, PendingItem item);
+
+    /**
+     * @return number of items that were removed
+     */
+    int removePlayer(UUID playerId);
+
+    /**
+     * Replaces a player's items, e.g. with what was left after a partial delivery.
+     * An empty list removes the player.
+     */
+    void replaceItems(UUID playerId, List<PendingItem> items);
+
+    /**
+     * Hint that the player is about to join, for backends that read items from disk on demand.
+     * Called from the async pre-login thread.
+     */
+    default void preload(UUID playerId) {
+    }
+
+    /**
+     * Hint that the player's items are no longer needed in memory, e.g. after they left.
+     */
+    default void release(UUID playerId) {
+    }
+
+    /**
+     * Number of queue entries: merged item stacks and deferred commands, not individual orders or items.
+     */
+    int getTotalQueuedEntries();
+
+    int getQueuedPlayersCount();
+
+    /**
+     * Full copy of the stored queue, used for export and migration.
+     */
+    Map<UUID, List<PendingItem>> snapshot();
+
+    /**
+     * Replaces the whole stored queue and persists it before returning. Used by migration.
+     */
+    void importAll(Map<UUID, List<PendingItem>> queue) throws IOException;
+
+    void close(long timeoutSeconds);
+}
@@ -0,0 +1,390 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.Material;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Embedded SQLite backend (pending.db), using the driver bundled with the server.
+ * Items are not held in memory: a join lookup, an enqueue and a per-player delete are each a
+ * single indexed statement. Only a per-player item count is kept to answer size queries.
+ * Each row is one merged stack per player, material, note, full item and deferred command, with its
+ * order ids as "1,2,3".
+ * Players are stored as their UUID string. Full items are stored once each in pending_item_data and
+ * referenced by id (0 = plain material); that table is small and kept in memory.
+ */
+public class SqlQueueStorage implements QueueStorage {
+    private static final String DRIVER = "org.sqlite.JDBC";
+
+    private final File databaseFile;
+    private final Logger logger;
+    private final LatencyHistogram flushLatency;
+    private final Map<UUID, Integer> itemCounts = new ConcurrentHashMap<>(); // Read by size queries from any thread
+    private final AtomicInteger totalEntries = new AtomicInteger();
+    private final Map<Integer, ItemData> itemData = new ConcurrentHashMap<>();
+    private final Map<ItemData, Integer> itemDataIds = new ConcurrentHashMap<>();
+    private final List<ItemData> uncommittedItemData = new ArrayList<>(); // Inserted by the open transaction
+
+    private Connection connection;
+    private PreparedStatement selectPlayer;
+    private PreparedStatement mergeItem;
+    private PreparedStatement insertItem;
+    private PreparedStatement deletePlayer;
+    private PreparedStatement insertItemData;
+
+    public SqlQueueStorage(File dataFolder, Logger logger, LatencyHistogram flushLatency) {
+        this.databaseFile = new File(dataFolder, "pending.db");
+        this.logger = logger;
+        this.flushLatency = flushLatency;
+    }
+
+    @Override
+    public void load() throws IOException {
+        try {
+            Class.forName(DRIVER);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("SQLite driver (" + DRIVER + ") is not available on this server", e);
+        }
+
+        try {
+            File folder = databaseFile.getAbsoluteFile().getParentFile();
+            if (!folder.exists()) {
+                folder.mkdirs();
+            }
+
+            connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                statement.execute("CREATE TABLE IF NOT EXISTS pending_stacks (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "player TEXT NOT NULL, " +
+                        "material TEXT NOT NULL, " +
+                        "note TEXT NOT NULL DEFAULT '', " +
+                        "amount INTEGER NOT NULL, " +
+                        "order_ids TEXT NOT NULL DEFAULT '', " +
+                        "item_id INTEGER NOT NULL DEFAULT 0, " +
+                        "command TEXT NOT NULL DEFAULT '')");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_stacks_player ON pending_stacks(player, material, note)");
+                statement.execute("CREATE TABLE IF NOT EXISTS pending_item_data (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "data BLOB NOT NULL UNIQUE)");
+            }
+
+            selectPlayer = connection.prepareStatement("SELECT material, amount, note, order_ids, item_id, command FROM pending_stacks WHERE player = ? ORDER BY id");
+            // Adds to the player's existing stack, as long as its amount stays within an int
+            mergeItem = connection.prepareStatement("UPDATE pending_stacks SET amount = amount + ?, " +
+                    "order_ids = CASE WHEN order_ids = '' THEN ? WHEN ? = '' THEN order_ids ELSE order_ids || ',' || ? END " +
+                    "WHERE id = (SELECT id FROM pending_stacks WHERE player = ? AND material = ? AND note = ? " +
+                    "AND item_id = ? AND command = ? AND amount + ? <= 2147483647 LIMIT 1)");
+            insertItem = connection.prepareStatement("INSERT INTO pending_stacks (player, material, note, amount, order_ids, item_id, command) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)");
+            deletePlayer = connection.prepareStatement("DELETE FROM pending_stacks WHERE player = ?");
+            insertItemData = connection.prepareStatement("INSERT INTO pending_item_data (data) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
+
+            loadItemData();
+            loadCounts();
+            logger.info("Loaded pending queue database: " + itemCounts.size() + " players, " + totalEntries.get() + " queued entries");
+        } catch (SQLException e) {
+            throw new IOException("Failed to open pending queue database", e);
+        }
+    }
+
+    // Drops items nobody has queued any more, then keeps the rest in memory
+    private void loadItemData() throws SQLException {
+        itemData.clear();
+        itemDataIds.clear();
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM pending_item_data WHERE id NOT IN (SELECT item_id FROM pending_stacks)");
+            try (ResultSet rows = statement.executeQuery("SELECT id, data FROM pending_item_data")) {
+                while (rows.next()) {
+                    ItemData data = ItemData.of(rows.getBytes(2));
+                    itemData.put(rows.getInt(1), data);
+                    itemDataIds.put(data, rows.getInt(1));
+                }
+            }
+        }
+    }
+
+    // Id of the item in pending_item_data, added on first use; 0 for a plain material
+    private int itemDataId(ItemData data) throws SQLException {
+        if (data == null) {
+            return 0;
+        }
+        Integer id = itemDataIds.get(data);
+        if (id != null) {
+            return id;
+        }
+
+        insertItemData.setBytes(1, data.bytes);
+        insertItemData.executeUpdate();
+        try (ResultSet keys = insertItemData.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("No id returned for queued item data");
+            }
+            id = keys.getInt(1);
+        }
+        // Cached right away so the same transaction reuses the id; forgotten again if it rolls back
+        itemData.put(id, data);
+        itemDataIds.put(data, id);
+        if (!connection.getAutoCommit()) {
+            uncommittedItemData.add(data);
+        }
+        return id;
+    }
+
+    private void commit() throws SQLException {
+        connection.commit();
+        uncommittedItemData.clear();
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException ignored) {
+        }
+        for (ItemData data : uncommittedItemData) {
+            Integer id = itemDataIds.remove(data);
+            if (id != null) {
+                itemData.remove(id);
+            }
+        }
+        uncommittedItemData.clear();
+    }
+
+    private void loadCounts() throws SQLException {
+        Map<UUID, Integer> counts = new HashMap<>();
+        int total = 0;
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT player, COUNT(*) FROM pending_stacks GROUP BY player")) {
+            while (rows.next()) {
+                int count = rows.getInt(2);
+                counts.put(UUID.fromString(rows.getString(1)), count);
+                total += count;
+            }
+        }
+        itemCounts.keySet().retainAll(counts.keySet());
+        itemCounts.putAll(counts);
+        totalEntries.set(total);
+    }
+
+    @Override
+    public List<PendingItem> getItems(UUID playerId) {
+        List<PendingItem> items = new ArrayList<>();
+        if (!itemCounts.containsKey(playerId)) {
+            return items;
+        }
+
+        try {
+            selectPlayer.setString(1, playerId.toString());
+            try (ResultSet rows = selectPlayer.executeQuery()) {
+                while (rows.next()) {
+                    PendingItem item = readItem(rows);
+                    if (item != null) {
+                        items.add(item);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Failed to read queued items for " + playerId, e);
+        }
+        return items;
+    }
+
+    @Override
+    public void addItem(UUID playerId, PendingItem item) {
+        try {
+            long start = System.nanoTime();
+            String orderIds = PendingItem.formatOrderIds(item.orderIds);
+            mergeItem.setInt(1, item.amount);
+            mergeItem.setString(2, orderIds);
+            mergeItem.setString(3, orderIds);
+            mergeItem.setString(4, orderIds);
+            mergeItem.setString(5, playerId.toString());
+            mergeItem.setString(6, item.material.getKey().toString());
+            mergeItem.setString(7, item.note != null ? item.note : "");
+            mergeItem.setInt(8, itemDataId(item.itemData));
+            mergeItem.setString(9, item.command != null ? item.command : "");
+            mergeItem.setInt(10, item.amount);
+            boolean merged = mergeItem.executeUpdate() > 0;
+            if (!merged) {
+                bindItem(insertItem, playerId, item);
+                insertItem.executeUpdate();
+            }
+            flushLatency.recordSince(start);
+            if (!merged) {
+                itemCounts.merge(playerId, 1, Integer::sum);
+                totalEntries.incrementAndGet();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to queue item for " + playerId, e);
+        }
+    }
+
+    @Override
+    public int removePlayer(UUID playerId) {
+        if (!itemCounts.containsKey(playerId)) {
+            return 0;
+        }
+
+        try {
+            long start = System.nanoTime();
+            deletePlayer.setString(1, playerId.toString());
+            int removed = deletePlayer.executeUpdate();
+            flushLatency.recordSince(start);
+            itemCounts.remove(playerId);
+            totalEntries.addAndGet(-removed);
+            return removed;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to remove queued items for " + playerId, e);
+        }
+    }
+
+    @Override
+    public void replaceItems(UUID playerId, List<PendingItem> items) {
+        if (items.isEmpty()) {
+            removePlayer(playerId);
+            return;
+        }
+
+        // Delete and re-insert in one transaction so a crash cannot lose or duplicate the player's items
+        try {
+            long start = System.nanoTime();
+            connection.setAutoCommit(false);
+            deletePlayer.setString(1, playerId.toString());
+            int removed = deletePlayer.executeUpdate();
+            for (PendingItem item : items) {
+                bindItem(insertItem, playerId, item);
+                insertItem.addBatch();
+            }
+            insertItem.executeBatch();
+            commit();
+            flushLatency.recordSince(start);
+
+            itemCounts.put(playerId, items.size());
+            totalEntries.addAndGet(items.size() - removed);
+        } catch (SQLException e) {
+            rollback();
+            throw new IllegalStateException("Failed to update queued items for " + playerId, e);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public int getTotalQueuedEntries() {
+        return totalEntries.get();
+    }
+
+    @Override
+    public int getQueuedPlayersCount() {
+        return itemCounts.size();
+    }
+
+    @Override
+    public Map<UUID, List<PendingItem>> snapshot() {
+        Map<UUID, List<PendingItem>> queue = new LinkedHashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT player, material, amount, note, order_ids, item_id, command FROM pending_stacks ORDER BY player, id")) {
+            while (rows.next()) {
+                UUID playerId = UUID.fromString(rows.getString("player"));
+                PendingItem item = readItem(rows);
+                if (item != null) {
+                    queue.computeIfAbsent(playerId, k -> new ArrayList<>()).add(item);
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Failed to read pending queue database", e);
+        }
+        return queue;
+    }
+
+    @Override
+    public void importAll(Map<UUID, List<PendingItem>> queue) throws IOException {
+        try {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM pending_stacks");
+            }
+            for (Map.Entry<UUID, List<PendingItem>> entry : queue.entrySet()) {
+                for (PendingItem item : entry.getValue()) {
+                    bindItem(insertItem, entry.getKey(), item);
+                    insertItem.addBatch();
+                }
+            }
+            insertItem.executeBatch();
+            commit();
+            loadCounts();
+        } catch (SQLException e) {
+            rollback();
+            throw new IOException("Failed to import into pending queue database", e);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public void close(long timeoutSeconds) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to close pending queue database", e);
+        }
+        connection = null;
+    }
+
+    private void bindItem(PreparedStatement statement, UUID playerId, PendingItem item) throws SQLException {
+        statement.setString(1, playerId.toString());
+        statement.setString(2, item.material.getKey().toString());
+        statement.setString(3, item.note != null ? item.note : "");
+        statement.setInt(4, item.amount);
+        statement.setString(5, PendingItem.formatOrderIds(item.orderIds));
+        statement.setInt(6, itemDataId(item.itemData));
+        statement.setString(7, item.command != null ? item.command : "");
+    }
+
+    private PendingItem readItem(ResultSet row) throws SQLException {
+        String materialName = row.getString("material");
+        Material material = Material.matchMaterial(materialName);
+        if (material == null) {
+            logger.warning("Skipping invalid material in queue: " + materialName);
+            return null;
+        }
+        int itemId = row.getInt("item_id");
+        ItemData data = itemId == 0 ? null : itemData.get(itemId);
+        if (itemId != 0 && data == null) {
+            logger.warning("Skipping queued " + materialName + " with missing item " + itemId);
+            return null;
+        }
+        String note = row.getString("note");
+        String command = row.getString("command");
+        return new PendingItem(material, row.getInt("amount"), PendingItem.parseOrderIds(row.getString("order_ids")),
+                note.isEmpty() ? null : note, data, command.isEmpty() ? null : command);
+    }
+}
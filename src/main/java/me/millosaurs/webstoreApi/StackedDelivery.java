@@ -0,0 +1,81 @@
+package me.millosaurs.webstoreApi;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A player's queued items split into as few full stacks as possible for one addItem call.
+ * Whatever the inventory does not take is turned back into queue entries.
+ * Full items are decoded here, once per queue entry.
+ */
+final class StackedDelivery {
+    // A player's storage slots; anything beyond this could never fit in one go
+    private static final int MAX_STACKS = 36;
+
+    private final List<PendingItem> items;
+    private final long[] offered;
+    private final int[] stackOwners; // Stack index -> index of the queue entry it came from
+    private final ItemStack[] stacks;
+
+    StackedDelivery(List<PendingItem> items) {
+        this.items = List.copyOf(items);
+        this.offered = new long[this.items.size()];
+
+        List<ItemStack> merged = new ArrayList<>();
+        int[] owners = new int[MAX_STACKS];
+        for (int i = 0; i < this.items.size() && merged.size() < MAX_STACKS; i++) {
+            PendingItem item = this.items.get(i);
+            ItemStack full = item.itemData != null ? item.itemData.toStack(1) : null;
+            int maxStackSize = Math.max(1, full != null ? full.getMaxStackSize() : item.material.getMaxStackSize());
+            int left = item.amount;
+            while (left > 0 && merged.size() < MAX_STACKS) {
+                int amount = Math.min(maxStackSize, left);
+                owners[merged.size()] = i;
+                merged.add(full != null ? stackOf(full, amount) : new ItemStack(item.material, amount));
+                offered[i] += amount;
+                left -= amount;
+            }
+        }
+        this.stacks = merged.toArray(new ItemStack[0]);
+        this.stackOwners = owners;
+    }
+
+    private static ItemStack stackOf(ItemStack full, int amount) {
+        ItemStack stack = full.clone();
+        stack.setAmount(amount);
+        return stack;
+    }
+
+    ItemStack[] stacks() {
+        return stacks;
+    }
+
+    long totalAmount() {
+        return items.stream().mapToLong(item -> item.amount).sum();
+    }
+
+    /**
+     * Queue entries for everything not delivered: addItem's leftovers (keyed by stack index)
+     * plus what was never offered. Entries keep their order ids and notes.
+     */
+    List<PendingItem> remaining(Map<Integer, ItemStack> leftovers) {
+        long[] notDelivered = new long[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            notDelivered[i] = items.get(i).amount - offered[i];
+        }
+        for (Map.Entry<Integer, ItemStack> leftover : leftovers.entrySet()) {
+            notDelivered[stackOwners[leftover.getKey()]] += leftover.getValue().getAmount();
+        }
+
+        List<PendingItem> remaining = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (notDelivered[i] > 0) {
+                remaining.add(items.get(i).withAmount((int) notDelivered[i]));
+            }
+        }
+        return remaining;
+    }
+}
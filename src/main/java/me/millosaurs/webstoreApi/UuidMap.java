@@ -0,0 +1,146 @@
+package me.millosaurs.webstoreApi;
+
+import java.util.UUID;
+
+/**
+ * UUID -> value map with open addressing over parallel long arrays, so a lookup hashes two longs
+ * instead of a String and no entry objects are allocated. Not thread-safe; null values are not
+ * allowed (a null value marks an empty slot).
+ */
+final class UuidMap<V> {
+    private long[] mostBits;
+    private long[] leastBits;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    UuidMap() {
+        this(16);
+    }
+
+    UuidMap(int expectedSize) {
+        int tableSize = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+        allocate(tableSize);
+    }
+
+    int size() {
+        return size;
+    }
+
+    V get(UUID key) {
+        return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long most, long least) {
+        return (V) values[find(most, least)];
+    }
+
+    /**
+     * @return the previous value, or null
+     */
+    V put(UUID key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null value");
+        }
+
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+        int slot = find(most, least);
+        @SuppressWarnings("unchecked")
+        V previous = (V) values[slot];
+        if (previous == null) {
+            if ((size + 1) * 4 > values.length * 3) {
+                resize(values.length << 1);
+                slot = find(most, least);
+            }
+            mostBits[slot] = most;
+            leastBits[slot] = least;
+            size++;
+        }
+        values[slot] = value;
+        return previous;
+    }
+
+    /**
+     * @return the removed value, or null
+     */
+    V remove(UUID key) {
+        int slot = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        @SuppressWarnings("unchecked")
+        V removed = (V) values[slot];
+        if (removed == null) {
+            return null;
+        }
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int next = (slot + 1) & mask;
+        while (values[next] != null) {
+            int home = mix(mostBits[next], leastBits[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                mostBits[slot] = mostBits[next];
+                leastBits[slot] = leastBits[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[slot] = null;
+        size--;
+        return removed;
+    }
+
+    void clear() {
+        allocate(16);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(Visitor<? super V> visitor) {
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                visitor.accept(new UUID(mostBits[slot], leastBits[slot]), (V) values[slot]);
+            }
+        }
+    }
+
+    interface Visitor<V> {
+        void accept(UUID key, V value);
+    }
+
+    private int find(long most, long least) {
+        int slot = mix(most, least) & mask;
+        while (values[slot] != null && (mostBits[slot] != most || leastBits[slot] != least)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int tableSize) {
+        long[] oldMost = mostBits;
+        long[] oldLeast = leastBits;
+        Object[] oldValues = values;
+        allocate(tableSize);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = find(oldMost[i], oldLeast[i]);
+                mostBits[slot] = oldMost[i];
+                leastBits[slot] = oldLeast[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int tableSize) {
+        mostBits = new long[tableSize];
+        leastBits = new long[tableSize];
+        values = new Object[tableSize];
+        mask = tableSize - 1;
+    }
+
+    private static int mix(long most, long least) {
+        long h = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -2,36 +2,82 @@ package me.millosaurs.webstoreApi;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.configuration.file.FileConfiguration;
 
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import org.bstats.bukkit.Metrics;
 
 public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
     private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+    private InFlightLimiter inFlightLimiter;
+    private int retryAfterSeconds;
+    private int maxOrdersPerBatch;
+    private boolean asyncAccept;
+    private DeliveryRequestReader requestReader;
+    private final StringBuilder commandBuilder = new StringBuilder(128); // Main thread only
     private String secret;
-    private List<String> allowedCommands;
+    private CommandWhitelist commandWhitelist;
     private boolean queueOfflineItems;
+    private CommandWhitelist deferredCommands;
     private PendingQueue pendingQueue;
-    private Gson gson = new Gson();
+    private DeliveryScheduler deliveryScheduler;
+    private volatile HealthSnapshot health;
+    private BukkitTask healthTask;
+    private boolean logHealthRequests;
+    private DeliveryEventLog eventLog;
+    private OrderIdempotencyStore idempotencyStore;
+    private final Gson gson = DeliveryJson.GSON;
+    private final WebstoreMetrics deliveryMetrics = new WebstoreMetrics();
+
+    public WebstoreIntegrationPlugin() {
+        super();
+    }
+
+    // Used by the load-test harness in benchmarks/ to run the plugin without a real server
+    protected WebstoreIntegrationPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
 
     @Override
     public void onEnable() {
@@ -49,9 +95,34 @@ public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
         // Load configuration
         loadConfiguration();
 
+        // Delivery logging, written from a background thread
+        eventLog = new DeliveryEventLog(getLogger(),
+                getConfig().getBoolean("logging.logRequests", true),
+                getConfig().getBoolean("logging.logCommands", true),
+                getConfig().getBoolean("logging.logFailures", true),
+                getConfig().getDouble("logging.requestSampleRate", 1.0),
+                getConfig().getInt("logging.bufferSize", 8192));
+
         // Initialize pending queue
-        pendingQueue = new PendingQueue(this);
-        pendingQueue.load();
+        pendingQueue = new PendingQueue(this, deliveryMetrics.persistenceFlush);
+        if (!pendingQueue.load()) {
+            // Offline gives run as plain commands and fail, so the webstore retries them once the queue is back
+            queueOfflineItems = false;
+            deferredCommands = CommandWhitelist.compile(List.of());
+        }
+
+        // Remember processed orders so webstore retries are not delivered twice
+        if (getConfig().getBoolean("idempotency.enabled", true)) {
+            idempotencyStore = new OrderIdempotencyStore(getDataFolder(), getLogger(),
+                    getConfig().getInt("idempotency.cacheSize", 10000),
+                    getConfig().getInt("idempotency.persistedOrders", 100000));
+            idempotencyStore.load();
+        }
+
+        // Main-thread delivery queue with a per-tick time budget
+        deliveryScheduler = new DeliveryScheduler(getLogger(), getConfig().getLong("delivery.tickBudgetMicros", 5000),
+                deliveryMetrics.mainThreadWait, deliveryMetrics.mainThreadExecution);
+        deliveryScheduler.start(this);
 
         // Register event listeners
         Bukkit.getPluginManager().registerEvents(this, this);
@@ -72,6 +143,24 @@ public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
             httpServer.stop(0);
             getLogger().info("HTTP server stopped");
         }
+        if (httpExecutor != null) {
+            httpExecutor.shutdownNow();
+        }
+        if (healthTask != null) {
+            healthTask.cancel();
+        }
+        if (deliveryScheduler != null) {
+            deliveryScheduler.stop(); // Finish orders that were already accepted
+        }
+        if (pendingQueue != null) {
+            pendingQueue.close();
+        }
+        if (idempotencyStore != null) {
+            idempotencyStore.close(getConfig().getLong("storage.shutdownTimeoutSeconds", 10));
+        }
+        if (eventLog != null) {
+            eventLog.close(getConfig().getLong("storage.shutdownTimeoutSeconds", 10));
+        }
         getLogger().info("Webstore Integration Plugin disabled");
     }
 
@@ -91,52 +180,146 @@ public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
         getLogger().info("");
     }
 
+    // Off the main thread: backends that keep items on disk read them here, before the join
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            pendingQueue.preload(event.getUniqueId(), event.getName());
+        }
+    }
+
+    // A refused login never quits, so what was preloaded for it is dropped here
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            pendingQueue.release(event.getPlayer().getUniqueId(), event.getPlayer().getName());
+        }
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        pendingQueue.release(event.getPlayer().getUniqueId(), event.getPlayer().getName());
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
-        String playerName = player.getName().toLowerCase();
+        pendingQueue.playerJoined(player);
+
+        if (pendingQueue.getItems(player.getUniqueId()).isEmpty()) {
+            return;
+        }
 
-        List<PendingItem> pendingItems = pendingQueue.getItems(playerName);
+        // Delay by 1 second to ensure player is fully loaded, then wait for a turn in the delivery
+        // scheduler so a wave of joins after a restart is spread over several ticks
+        Bukkit.getScheduler().runTaskLater(this,
+                () -> deliveryScheduler.execute(() -> deliverQueuedItems(player)), 20L);
+    }
+
+    private void deliverQueuedItems(Player player) {
+        if (!player.isOnline()) {
+            return; // Left before their turn, the items stay queued
+        }
+
+        // Read at delivery time so orders queued since the join are included
+        List<PendingItem> pendingItems = pendingQueue.getItems(player.getUniqueId());
         if (pendingItems.isEmpty()) {
             return;
         }
 
-        getLogger().info("Delivering " + pendingItems.size() + " queued items to " + player.getName());
+        List<PendingItem> items = new ArrayList<>(pendingItems.size());
+        List<PendingItem> commands = new ArrayList<>();
+        for (PendingItem item : pendingItems) {
+            (item.isCommand() ? commands : items).add(item);
+        }
 
-        Bukkit.getScheduler().runTaskLater(this, () -> {
-            int delivered = 0;
-            for (PendingItem item : pendingItems) {
-                try {
-                    ItemStack itemStack = new ItemStack(item.material, item.amount);
-                    player.getInventory().addItem(itemStack);
-                    delivered++;
-                    getLogger().info("Delivered " + item.amount + "x " + item.material.name() + " to " + player.getName() +
-                            (item.note != null ? " (note: " + item.note + ")" : ""));
-                } catch (Exception e) {
-                    getLogger().warning("Failed to deliver item " + item.material.name() + " to " + player.getName() + ": " + e.getMessage());
-                }
+        StackedDelivery delivery = new StackedDelivery(items);
+        Map<Integer, ItemStack> leftovers;
+        try {
+            leftovers = player.getInventory().addItem(delivery.stacks());
+        } catch (Exception e) {
+            getLogger().warning("Failed to deliver queued items to " + player.getName() + ": " + e.getMessage());
+            return;
+        }
+
+        // Only what did not fit goes back into the queue; deferred commands get one try
+        List<PendingItem> remaining = delivery.remaining(leftovers);
+        try {
+            pendingQueue.replaceItems(player.getUniqueId(), remaining);
+        } catch (RuntimeException e) {
+            getLogger().log(Level.SEVERE, "Delivered queued items to " + player.getName() +
+                    " but could not update the pending queue, they may be delivered again", e);
+        }
+        runDeferredCommands(player, commands);
+
+        long left = remaining.stream().mapToLong(item -> item.amount).sum();
+        long delivered = delivery.totalAmount() - left;
+        if (delivered > 0) {
+            getLogger().info("Delivered " + delivered + " queued item(s) to " + player.getName() +
+                    (left > 0 ? ", " + left + " still queued (inventory full)" : ""));
+            player.sendMessage("You received " + delivered + " queued item(s) from the webstore!");
+        }
+        if (left > 0) {
+            player.sendMessage("Your inventory is full, " + left + " item(s) will be delivered the next time you join.");
+        }
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 1 && "export".equalsIgnoreCase(args[0])) {
+            if (!pendingQueue.isAvailable()) {
+                sender.sendMessage("The pending queue failed to load, see the console");
+                return true;
             }
+            File target = new File(getDataFolder(), "pending-export.yml");
+            pendingQueue.exportYaml(target);
+            sender.sendMessage("Exporting " + pendingQueue.getTotalQueuedEntries() + " queued entries to " + target.getName());
+            return true;
+        }
 
-            if (delivered > 0) {
-                pendingQueue.removePlayer(playerName);
-                pendingQueue.save();
-                player.sendMessage("You received " + delivered + " queued item(s) from the webstore!");
+        if (args.length == 3 && "migrate".equalsIgnoreCase(args[0])) {
+            String from = args[1].toLowerCase();
+            String to = args[2].toLowerCase();
+            if (!PendingQueue.BACKENDS.contains(from) || !PendingQueue.BACKENDS.contains(to) || from.equals(to)) {
+                sender.sendMessage("Usage: /webstore migrate <from> <to> (backends: " + String.join(", ", PendingQueue.BACKENDS) + ")");
+                return true;
             }
-        }, 20L); // Delay by 1 second to ensure player is fully loaded
+            if (to.equals(pendingQueue.getBackend())) {
+                sender.sendMessage("Cannot migrate into the active backend, migrate first and then change storage.backend");
+                return true;
+            }
+
+            sender.sendMessage("Migrating pending queue from " + from + " to " + to + "...");
+            pendingQueue.migrate(from, to, () -> Bukkit.getScheduler().runTask(this,
+                    () -> sender.sendMessage("Pending queue migration from " + from + " to " + to + " finished, see console for details")));
+            return true;
+        }
+        return false;
     }
 
     private void loadConfiguration() {
         FileConfiguration config = getConfig();
 
         this.secret = config.getString("secret", "change-me-super-secret-key");
-        this.allowedCommands = config.getStringList("allowedCommands");
+        this.commandWhitelist = CommandWhitelist.compile(config.getStringList("allowedCommands"));
         this.queueOfflineItems = config.getBoolean("advanced.queueOfflineItems", true);
+        this.deferredCommands = CommandWhitelist.compile(config.getStringList("advanced.deferOfflineCommands"));
+        this.maxOrdersPerBatch = config.getInt("advanced.maxOrdersPerBatch", 100);
+        this.requestReader = new DeliveryRequestReader(
+                config.getLong("advanced.maxBodyBytes", 262144),
+                config.getInt("advanced.maxCommandsPerRequest", 50),
+                deliveryMetrics.bodyRead, deliveryMetrics.parse);
+        this.asyncAccept = config.getBoolean("delivery.asyncAccept", false);
+        this.logHealthRequests = config.getBoolean("health.logRequests", false);
 
         if ("change-me-super-secret-key".equals(this.secret)) {
             getLogger().warning("WARNING: Using default secret key! Change it in config.yml for security!");
         }
 
-        getLogger().info("Loaded " + allowedCommands.size() + " allowed command prefixes");
+        getLogger().info("Loaded " + commandWhitelist.size() + " allowed command prefixes");
+        if (!deferredCommands.isEmpty()) {
+            getLogger().info("Deferring " + deferredCommands.size() + " command prefixes for offline players");
+        }
     }
 
     private void startHttpServer() {
@@ -146,10 +329,23 @@ public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
 
             // Add endpoints
             httpServer.createContext("/deliver", new DeliveryHandler());
+            httpServer.createContext("/deliver/batch", new BatchDeliveryHandler());
+            httpServer.createContext("/orders/", new OrderStatusHandler());
             httpServer.createContext("/health", new HealthHandler());
+            httpServer.createContext("/metrics", new MetricsHandler());
+
+            // Requests run on their own threads instead of the single dispatcher thread
+            inFlightLimiter = new InFlightLimiter(getConfig().getInt("http.maxInFlight", 256));
+            retryAfterSeconds = getConfig().getInt("http.retryAfterSeconds", 5);
+            httpExecutor = createHttpExecutor();
+            httpServer.setExecutor(httpExecutor);
+
+            // Health is sampled on the main thread; the first sample is taken before any probe can arrive
+            refreshHealth();
+            long refreshTicks = Math.max(1, getConfig().getLong("health.refreshTicks", 20));
+            healthTask = Bukkit.getScheduler().runTaskTimer(this, this::refreshHealth, refreshTicks, refreshTicks);
 
             // Start server
-            httpServer.setExecutor(null);
             httpServer.start();
 
             getLogger().info("HTTP server started successfully on port " + port);
@@ -159,7 +355,25 @@ public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
         }
     }
 
-    private class DeliveryHandler implements HttpHandler {
+    private ExecutorService createHttpExecutor() {
+        String mode = getConfig().getString("http.executor", "virtual").toLowerCase();
+        if ("pool".equals(mode)) {
+            int poolSize = Math.max(1, getConfig().getInt("http.poolSize", 8));
+            AtomicInteger threadId = new AtomicInteger();
+            getLogger().info("HTTP executor: bounded pool with " + poolSize + " threads");
+            return Executors.newFixedThreadPool(poolSize, r -> {
+                Thread thread = new Thread(r, "Webstore-HTTP-" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        getLogger().info("HTTP executor: virtual thread per request");
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Webstore-HTTP-", 1).factory());
+    }
+
+    // Shared CORS, method, auth and in-flight handling for the POST delivery endpoints
+    private abstract class AuthorizedPostHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             // Enable CORS for web requests
@@ -190,142 +404,476 @@ public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
                 return;
             }
 
-            // Read request body
-            String requestBody;
-            try (InputStream is = exchange.getRequestBody()) {
-                requestBody = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            // Shed load early when too many deliveries are already in progress
+            if (!inFlightLimiter.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+                sendResponse(exchange, 503, createErrorResponse("Server busy, retry later"));
+                return;
             }
 
-            getLogger().info("Received delivery request: " + requestBody);
+            boolean responseHandedOff = false;
+            try {
+                responseHandedOff = handleDelivery(exchange);
+            } finally {
+                if (!responseHandedOff) {
+                    inFlightLimiter.release();
+                }
+            }
+        }
 
-            // Parse JSON request
+        // Returns true when the in-flight slot will be released asynchronously
+        protected abstract boolean handleDelivery(HttpExchange exchange) throws IOException;
+    }
+
+    private class DeliveryHandler extends AuthorizedPostHandler {
+        @Override
+        protected boolean handleDelivery(HttpExchange exchange) throws IOException {
+            // Parse JSON request straight from the body, within the configured limits
             DeliveryRequest request;
-            try {
-                request = gson.fromJson(requestBody, DeliveryRequest.class);
-            } catch (Exception e) {
-                getLogger().warning("Invalid JSON in delivery request: " + e.getMessage());
-                sendResponse(exchange, 400, createErrorResponse("Invalid JSON format"));
-                return;
+            try (InputStream is = exchange.getRequestBody()) {
+                request = requestReader.readOne(is, contentLength(exchange));
+            } catch (DeliveryRequestReader.RejectedRequestException e) {
+                rejectRequest(exchange, "delivery", e);
+                return false;
             }
 
             // Validate required fields
-            if (request.orderId == null || request.minecraftUsername == null ||
-                    request.commands == null || request.commands.isEmpty()) {
-                getLogger().warning("Missing required fields in delivery request");
-                sendResponse(exchange, 400, createErrorResponse("Missing required fields: orderId, minecraftUsername, commands"));
-                return;
+            String validationError = validateRequest(request);
+            if (validationError != null) {
+                deliveryMetrics.ordersRejected.increment();
+                eventLog.requestRejected("delivery", validationError);
+                sendResponse(exchange, 400, createErrorResponse(validationError));
+                return false;
             }
 
-            getLogger().info("Processing delivery for order " + request.orderId + " to player " + request.minecraftUsername);
+            eventLog.deliveryReceived(request.orderId, request.minecraftUsername);
 
-            // Process delivery asynchronously
-            CompletableFuture<DeliveryResult> future = processDelivery(request);
+            // Process delivery asynchronously (or reuse the result of an earlier delivery of this order)
+            CompletableFuture<DeliveryResult> future = deliverOnce(request);
 
-            future.thenAccept(result -> {
+            if (isAsyncRequest(exchange)) {
+                // Answer once the order is queued; the result can be fetched from /orders/{orderId}
+                JsonObject response = new JsonObject();
+                response.addProperty("success", true);
+                response.addProperty("orderId", request.orderId);
+                response.addProperty("status", "queued");
+
+                future.whenCompleteAsync((result, error) -> {
+                    inFlightLimiter.release();
+                    logDeliveryOutcome(request, result, error);
+                }, httpExecutor);
+                sendResponse(exchange, 202, gson.toJson(response));
+                return true;
+            }
+
+            // Serialize and write the response on an HTTP worker, never on the main thread
+            future.whenCompleteAsync((result, error) -> {
                 try {
-                    sendResponse(exchange, result.success ? 200 : 500, gson.toJson(result));
-
-                    if (result.success) {
-                        getLogger().info("Delivery completed successfully for order " + request.orderId +
-                                " (player: " + request.minecraftUsername + ")");
-                    } else {
-                        getLogger().warning("Delivery failed for order " + request.orderId +
-                                ": " + result.error);
+                    if (error != null) {
+                        logDeliveryOutcome(request, null, error);
+                        sendResponse(exchange, 500, createErrorResponse("Delivery failed: " + error.getMessage()));
+                        return;
                     }
+
+                    sendJson(exchange, result.success ? 200 : 500, result, DeliveryResult.class);
+                    logDeliveryOutcome(request, result, null);
                 } catch (IOException e) {
                     getLogger().log(Level.WARNING, "Error sending HTTP response", e);
+                } finally {
+                    inFlightLimiter.release();
                 }
-            });
+            }, httpExecutor);
+            return true;
+        }
+
+        private void logDeliveryOutcome(DeliveryRequest request, DeliveryResult result, Throwable error) {
+            if (error != null) {
+                eventLog.deliveryFailed(request.orderId, null, error);
+            } else {
+                eventLog.deliveryCompleted(result);
+            }
         }
     }
 
-    private CompletableFuture<DeliveryResult> processDelivery(DeliveryRequest request) {
-        CompletableFuture<DeliveryResult> future = new CompletableFuture<>();
+    private class BatchDeliveryHandler extends AuthorizedPostHandler {
+        @Override
+        protected boolean handleDelivery(HttpExchange exchange) throws IOException {
+            DeliveryRequest[] requests;
+            try (InputStream is = exchange.getRequestBody()) {
+                requests = requestReader.readBatch(is, contentLength(exchange), maxOrdersPerBatch);
+            } catch (DeliveryRequestReader.RejectedRequestException e) {
+                rejectRequest(exchange, "batch delivery", e);
+                return false;
+            }
 
-        // Execute on main server thread (required for Bukkit commands)
-        Bukkit.getScheduler().runTask(this, () -> {
-            DeliveryResult result = new DeliveryResult();
-            result.orderId = request.orderId;
-            result.minecraftUsername = request.minecraftUsername;
-            result.executedCommands = new java.util.ArrayList<>();
-            result.failedCommands = new java.util.ArrayList<>();
-            result.queuedCommands = new java.util.ArrayList<>();
+            if (requests.length == 0) {
+                sendResponse(exchange, 400, createErrorResponse("Expected a non-empty array of delivery requests"));
+                return false;
+            }
 
-            getLogger().info("Executing " + request.commands.size() + " commands for " + request.minecraftUsername);
+            // Validate here on the HTTP thread; invalid and already processed orders never reach the main thread
+            DeliveryResult[] results = new DeliveryResult[requests.length];
+            List<DeliveryRequest> accepted = new ArrayList<>(requests.length);
+            List<Integer> acceptedIndexes = new ArrayList<>(requests.length);
+            List<CompletableFuture<?>> duplicates = new ArrayList<>();
+            // Kept apart from results, which duplicates and finished orders fill in as they complete
+            List<DeliveryResult> rejected = new ArrayList<>();
+            for (int i = 0; i < requests.length; i++) {
+                String validationError = validateRequest(requests[i]);
+                if (validationError != null) {
+                    results[i] = newResult(requests[i]);
+                    results[i].success = false;
+                    results[i].error = validationError;
+                    rejected.add(results[i]);
+                    deliveryMetrics.ordersRejected.increment();
+                    continue;
+                }
 
-            for (String command : request.commands) {
-                // Replace placeholders in command
-                String finalCommand = command
-                        .replace("{player}", request.minecraftUsername)
-                        .replace("{order_id}", request.orderId.toString());
+                if (idempotencyStore != null) {
+                    OrderIdempotencyStore.Claim claim = idempotencyStore.claim(requests[i].orderId);
+                    if (!claim.owner) {
+                        int index = i;
+                        duplicates.add(claim.result.thenAccept(result -> results[index] = result));
+                        deliveryMetrics.ordersDuplicate.increment();
+                        continue;
+                    }
+                }
 
-                getLogger().info("Processing command: " + finalCommand);
+                accepted.add(requests[i]);
+                acceptedIndexes.add(i);
+            }
 
-                // Check if command is allowed (if whitelist is enabled)
-                if (!allowedCommands.isEmpty() && !isCommandAllowed(finalCommand)) {
-                    String error = finalCommand + " (not in whitelist)";
-                    result.failedCommands.add(error);
-                    getLogger().warning("Command blocked by whitelist: " + finalCommand);
-                    continue;
+            eventLog.batchReceived(accepted.size(), duplicates.size(), rejected.size());
+
+            CompletableFuture<List<DeliveryResult>> batch = processBatch(accepted);
+            if (idempotencyStore != null) {
+                batch.whenComplete((batchResults, error) -> {
+                    for (int i = 0; i < accepted.size(); i++) {
+                        if (error == null) {
+                            idempotencyStore.complete(accepted.get(i).orderId, batchResults.get(i));
+                        } else {
+                            idempotencyStore.release(accepted.get(i).orderId, error);
+                        }
+                    }
+                });
+            }
+
+            CompletableFuture<Void> future = batch.thenAccept(batchResults -> {
+                for (int i = 0; i < batchResults.size(); i++) {
+                    results[acceptedIndexes.get(i)] = batchResults.get(i);
                 }
+            }).thenCompose(ignored -> CompletableFuture.allOf(duplicates.toArray(new CompletableFuture[0])));
+
+            if (isAsyncRequest(exchange)) {
+                // Answer as soon as the orders are queued; the slot is held until they have run
+                JsonObject response = new JsonObject();
+                response.addProperty("success", true);
+                response.addProperty("queued", accepted.size());
+                response.addProperty("duplicates", duplicates.size());
+                response.add("rejected", gson.toJsonTree(rejected.toArray()));
+
+                future.whenCompleteAsync((ignored, error) -> {
+                    inFlightLimiter.release();
+                    logBatchSummary(results);
+                }, httpExecutor);
+                sendResponse(exchange, 202, gson.toJson(response));
+                return true;
+            }
 
-                // Check if this is a give command and handle offline delivery
-                if (isGiveCommand(finalCommand)) {
-                    handleGiveCommand(finalCommand, request.minecraftUsername, result);
-                } else {
-                    // Execute non-give commands normally
-                    executeRegularCommand(finalCommand, result);
+            future.whenCompleteAsync((ignored, error) -> {
+                try {
+                    if (error != null) {
+                        getLogger().log(Level.WARNING, "Batch delivery failed", error);
+                        sendResponse(exchange, 500, createErrorResponse("Delivery failed: " + error.getMessage()));
+                        return;
+                    }
+
+                    boolean allSucceeded = Arrays.stream(results).allMatch(result -> result.success);
+                    sendJson(exchange, allSucceeded ? 200 : 207, results, DeliveryResult[].class);
+                    logBatchSummary(results);
+                } catch (IOException e) {
+                    getLogger().log(Level.WARNING, "Error sending HTTP response", e);
+                } finally {
+                    inFlightLimiter.release();
                 }
+            }, httpExecutor);
+            return true;
+        }
+
+        private void logBatchSummary(DeliveryResult[] results) {
+            int failed = (int) Arrays.stream(results).filter(result -> result == null || !result.success).count();
+            eventLog.batchCompleted(results.length - failed, failed);
+        }
+    }
+
+    // GET /orders/{orderId}: status of an order accepted in async mode (or any recently processed order)
+    private class OrderStatusHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, createErrorResponse("Method not allowed"));
+                return;
             }
 
-            // Determine overall success
-            result.success = result.failedCommands.isEmpty();
-            if (!result.success) {
-                result.error = "Some commands failed: " + String.join(", ", result.failedCommands);
+            String auth = exchange.getRequestHeaders().getFirst("Authorization");
+            if (auth == null || !auth.equals("Bearer " + secret)) {
+                getLogger().warning("Unauthorized order status request from " + exchange.getRemoteAddress().getHostString());
+                sendResponse(exchange, 403, createErrorResponse("Unauthorized"));
+                return;
             }
 
-            getLogger().info("Delivery summary - Success: " + result.success +
-                    ", Executed: " + result.executedCommands.size() +
-                    ", Failed: " + result.failedCommands.size() +
-                    ", Queued: " + result.queuedCommands.size());
+            if (idempotencyStore == null) {
+                sendResponse(exchange, 404, createErrorResponse("Order tracking requires idempotency.enabled"));
+                return;
+            }
 
-            future.complete(result);
-        });
+            String path = exchange.getRequestURI().getPath();
+            int orderId;
+            try {
+                orderId = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+            } catch (NumberFormatException e) {
+                sendResponse(exchange, 400, createErrorResponse("Invalid order id"));
+                return;
+            }
 
+            DeliveryResult result = idempotencyStore.find(orderId);
+            if (result != null) {
+                sendJson(exchange, 200, result, DeliveryResult.class);
+            } else if (idempotencyStore.isInFlight(orderId)) {
+                JsonObject response = new JsonObject();
+                response.addProperty("orderId", orderId);
+                response.addProperty("status", "queued");
+                sendResponse(exchange, 202, gson.toJson(response));
+            } else {
+                sendResponse(exchange, 404, createErrorResponse("Unknown order " + orderId));
+            }
+        }
+    }
+
+    private static long contentLength(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void rejectRequest(HttpExchange exchange, String kind, DeliveryRequestReader.RejectedRequestException e) throws IOException {
+        deliveryMetrics.ordersRejected.increment();
+        eventLog.requestRejected(kind, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        sendResponse(exchange, e.getStatusCode(), createErrorResponse(e.getMessage()));
+    }
+
+    private boolean isAsyncRequest(HttpExchange exchange) {
+        String async = queryParameter(exchange, "async");
+        return async != null ? "true".equalsIgnoreCase(async) : asyncAccept;
+    }
+
+    private String validateRequest(DeliveryRequest request) {
+        if (request == null) {
+            return "Empty delivery request";
+        }
+        if (request.orderId == null || request.minecraftUsername == null ||
+                request.commands == null || request.commands.isEmpty()) {
+            return "Missing required fields: orderId, minecraftUsername, commands";
+        }
+        if (request.quantity != null && request.quantity < 1) {
+            return "quantity must be at least 1";
+        }
+        return null;
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            if (key.equals(name)) {
+                return separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private CompletableFuture<DeliveryResult> deliverOnce(DeliveryRequest request) {
+        if (idempotencyStore == null) {
+            return processDelivery(request);
+        }
+
+        OrderIdempotencyStore.Claim claim = idempotencyStore.claim(request.orderId);
+        if (!claim.owner) {
+            deliveryMetrics.ordersDuplicate.increment();
+            eventLog.duplicateOrder(request.orderId);
+            return claim.result;
+        }
+
+        CompletableFuture<DeliveryResult> future = processDelivery(request);
+        future.whenComplete((result, error) -> {
+            if (error == null) {
+                idempotencyStore.complete(request.orderId, result);
+            } else {
+                idempotencyStore.release(request.orderId, error);
+            }
+        });
         return future;
     }
 
-    private boolean isGiveCommand(String command) {
-        String lowerCommand = command.toLowerCase().trim();
-        return lowerCommand.startsWith("give ") || lowerCommand.startsWith("minecraft:give ");
+    private CompletableFuture<DeliveryResult> processDelivery(DeliveryRequest request) {
+        DeliveryResult result = newResult(request);
+
+        // One main-thread step per command, drained by the scheduler within its per-tick budget
+        List<Runnable> steps = new ArrayList<>(request.commands.size() + 1);
+        addCommandSteps(request, result, steps);
+
+        return deliveryScheduler.submit(steps, () -> completeResult(result));
     }
 
-    private void handleGiveCommand(String command, String targetPlayer, DeliveryResult result) {
-        try {
-            // Parse give command: give <player> <material> [amount]
-            String[] parts = command.trim().split("\\s+");
-            if (parts.length < 3) {
-                result.failedCommands.add(command + " (invalid give command format)");
+    // All orders of a batch are queued as one unit of main-thread work
+    private CompletableFuture<List<DeliveryResult>> processBatch(List<DeliveryRequest> requests) {
+        List<DeliveryResult> results = new ArrayList<>(requests.size());
+        List<Runnable> steps = new ArrayList<>();
+        for (DeliveryRequest request : requests) {
+            DeliveryResult result = newResult(request);
+            results.add(result);
+            addCommandSteps(request, result, steps);
+        }
+
+        return deliveryScheduler.submit(steps, () -> {
+            results.forEach(this::completeResult);
+            return results;
+        });
+    }
+
+    private DeliveryResult newResult(DeliveryRequest request) {
+        DeliveryResult result = new DeliveryResult();
+        if (request != null) {
+            result.orderId = request.orderId;
+            result.minecraftUsername = request.minecraftUsername;
+        }
+        result.executedCommands = new ArrayList<>();
+        result.failedCommands = new ArrayList<>();
+        result.queuedCommands = new ArrayList<>();
+        return result;
+    }
+
+    private void addCommandSteps(DeliveryRequest request, DeliveryResult result, List<Runnable> steps) {
+        eventLog.deliveryCommands(request.orderId, request.minecraftUsername, request.commands.size());
+        for (String command : request.commands) {
+            steps.add(() -> processCommand(command, request, result));
+        }
+    }
+
+    private DeliveryResult completeResult(DeliveryResult result) {
+        // Determine overall success
+        result.success = result.failedCommands.isEmpty();
+        if (!result.success) {
+            result.error = "Some commands failed: " + String.join(", ", result.failedCommands);
+        }
+
+        deliveryMetrics.recordResult(result);
+        eventLog.deliverySummary(result);
+
+        return result;
+    }
+
+    private void processCommand(String command, DeliveryRequest request, DeliveryResult result) {
+        // Replace placeholders in command
+        CommandTemplate template = CommandTemplate.of(command);
+        String uuid = null;
+        if (template.usesUuid()) {
+            uuid = resolveUuid(request.minecraftUsername);
+            if (uuid == null) {
+                result.failedCommands.add(command + " (unknown uuid for " + request.minecraftUsername + ")");
+                eventLog.commandFailed(request.orderId, command, "unknown uuid", null);
                 return;
             }
+        }
+        int quantity = request.quantity != null ? request.quantity : 1;
+        String finalCommand = template.expand(commandBuilder, request.minecraftUsername, request.orderId, uuid, quantity);
 
-            String materialName = parts[2];
-            int amount = 1;
+        eventLog.commandProcessing(request.orderId, finalCommand);
 
-            if (parts.length > 3) {
+        // Check if command is allowed (if whitelist is enabled)
+        if (!commandWhitelist.isAllowed(finalCommand)) {
+            String error = finalCommand + " (not in whitelist)";
+            result.failedCommands.add(error);
+            eventLog.commandFailed(request.orderId, finalCommand, "not in whitelist", null);
+            return;
+        }
+
+        // Check if this is a give command and handle offline delivery
+        if (template.isGive()) {
+            handleGiveCommand(finalCommand, template.giveCommand(finalCommand, quantity), request.minecraftUsername, result);
+        } else if (deferredCommands.startsWithAny(finalCommand) && Bukkit.getPlayerExact(request.minecraftUsername) == null) {
+            // Would fail for an offline player (and make the webstore retry the order), so run it when they join
+            try {
+                pendingQueue.addCommand(request.minecraftUsername, finalCommand, request.orderId);
+            } catch (RuntimeException e) {
+                result.failedCommands.add(finalCommand + " (could not be queued: " + e.getMessage() + ")");
+                eventLog.commandFailed(request.orderId, finalCommand, "queue failed", e);
+                return;
+            }
+            result.queuedCommands.add(finalCommand + " (deferred until player joins)");
+            eventLog.commandDeferred(request.orderId, request.minecraftUsername, finalCommand);
+        } else {
+            // Execute non-give commands normally
+            executeRegularCommand(finalCommand, result);
+        }
+    }
+
+    private void runDeferredCommands(Player player, List<PendingItem> commands) {
+        int runs = 0;
+        for (PendingItem deferred : commands) {
+            for (int i = 0; i < deferred.amount; i++, runs++) {
                 try {
-                    amount = Integer.parseInt(parts[3]);
-                } catch (NumberFormatException e) {
-                    result.failedCommands.add(command + " (invalid amount: " + parts[3] + ")");
-                    return;
+                    if (!Bukkit.dispatchCommand(Bukkit.getConsoleSender(), deferred.command)) {
+                        getLogger().warning("Deferred command for " + player.getName() + " returned false: " + deferred.command);
+                    }
+                } catch (Exception e) {
+                    getLogger().warning("Deferred command for " + player.getName() + " failed: " + deferred.command + " (" + e.getMessage() + ")");
                 }
             }
+        }
+        if (runs > 0) {
+            getLogger().info("Ran " + runs + " deferred command(s) for " + player.getName());
+        }
+    }
 
-            // Validate material
-            Material material = Material.matchMaterial(materialName);
-            if (material == null) {
-                result.failedCommands.add(command + " (invalid material: " + materialName + ")");
-                getLogger().warning("Invalid material in give command: " + materialName);
+    private String resolveUuid(String playerName) {
+        Player onlinePlayer = Bukkit.getPlayerExact(playerName);
+        if (onlinePlayer != null) {
+            return onlinePlayer.getUniqueId().toString();
+        }
+        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayerIfCached(playerName);
+        return offlinePlayer != null ? offlinePlayer.getUniqueId().toString() : null;
+    }
+
+    private void handleGiveCommand(String command, CommandTemplate.GiveCommand give, String targetPlayer, DeliveryResult result) {
+        try {
+            // Material and amount come pre-parsed from the command template
+            if (give.error != null) {
+                result.failedCommands.add(command + " (" + give.error + ")");
+                eventLog.commandFailed(result.orderId, command, give.error, null);
+                return;
+            }
+
+            Material material = give.material;
+            int amount = give.amount;
+            ItemData itemData;
+            try {
+                itemData = give.itemData();
+            } catch (IllegalArgumentException e) {
+                result.failedCommands.add(command + " (invalid item: " + e.getMessage() + ")");
+                eventLog.commandFailed(result.orderId, command, "invalid item", e);
                 return;
             }
 
@@ -334,20 +882,19 @@ public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
             if (onlinePlayer != null && onlinePlayer.isOnline()) {
                 // Player is online, give directly via API
                 try {
-                    ItemStack itemStack = new ItemStack(material, amount);
+                    ItemStack itemStack = itemData != null ? itemData.toStack(amount) : new ItemStack(material, amount);
                     onlinePlayer.getInventory().addItem(itemStack);
                     result.executedCommands.add(command + " (delivered via API)");
-                    getLogger().info("Delivered " + amount + "x " + material.name() + " directly to online player " + targetPlayer);
+                    eventLog.itemDelivered(result.orderId, targetPlayer, material.name(), amount);
                 } catch (Exception e) {
                     result.failedCommands.add(command + " (delivery failed: " + e.getMessage() + ")");
-                    getLogger().warning("Failed to deliver item to online player " + targetPlayer + ": " + e.getMessage());
+                    eventLog.commandFailed(result.orderId, command, "delivery failed", e);
                 }
             } else if (queueOfflineItems) {
                 // Player is offline, queue the item
-                String note = "order " + result.orderId;
-                pendingQueue.addItem(targetPlayer.toLowerCase(), material, amount, note);
+                pendingQueue.addItem(targetPlayer, material, itemData, amount, result.orderId);
                 result.queuedCommands.add(command + " (queued for offline player)");
-                getLogger().info("Queued " + amount + "x " + material.name() + " for offline player " + targetPlayer);
+                eventLog.itemQueued(result.orderId, targetPlayer, material.name(), amount);
             } else {
                 // Offline queueing disabled, execute command normally
                 executeRegularCommand(command, result);
@@ -355,7 +902,7 @@ public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
 
         } catch (Exception e) {
             result.failedCommands.add(command + " (processing error: " + e.getMessage() + ")");
-            getLogger().warning("Error processing give command: " + command + " - " + e.getMessage());
+            eventLog.commandFailed(result.orderId, command, "processing error", e);
         }
     }
 
@@ -365,33 +912,44 @@ public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
 
             if (success) {
                 result.executedCommands.add(command);
-                getLogger().info("Command executed successfully: " + command);
+                eventLog.commandExecuted(result.orderId, command);
             } else {
                 String error = command + " (execution returned false)";
                 result.failedCommands.add(error);
-                getLogger().warning("Command execution failed: " + command);
+                eventLog.commandFailed(result.orderId, command, "execution returned false", null);
             }
         } catch (Exception e) {
             String error = command + " (exception: " + e.getMessage() + ")";
             result.failedCommands.add(error);
-            getLogger().log(Level.WARNING, "Exception executing command: " + command, e);
+            eventLog.commandFailed(result.orderId, command, "exception", e);
         }
     }
 
-    private boolean isCommandAllowed(String command) {
-        if (allowedCommands.isEmpty()) {
-            return true; // No whitelist = allow all
-        }
-
-        // Normalize the command (lowercase, trim whitespace)
-        String normalizedCommand = command.toLowerCase().trim();
+    // Prometheus text exposition of the counters and stage latencies in WebstoreMetrics
+    private class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, createErrorResponse("Method not allowed"));
+                return;
+            }
 
-        // Check if any allowed prefix matches the start of the command
-        return allowedCommands.stream()
-                .anyMatch(allowed -> {
-                    String normalizedAllowed = allowed.toLowerCase().trim();
-                    return normalizedCommand.startsWith(normalizedAllowed);
-                });
+            StringBuilder out = new StringBuilder(16384);
+            deliveryMetrics.writePrometheus(out);
+            WebstoreMetrics.gauge(out, "webstore_pending_queue_entries", "Merged stacks and deferred commands queued for offline players", pendingQueue.getTotalQueuedEntries());
+            WebstoreMetrics.gauge(out, "webstore_pending_queue_players", "Offline players with queued items", pendingQueue.getQueuedPlayersCount());
+            WebstoreMetrics.gauge(out, "webstore_delivery_backlog", "Main-thread delivery steps waiting to run", deliveryScheduler.getBacklog());
+            WebstoreMetrics.gauge(out, "webstore_http_in_flight", "Deliveries currently being processed", inFlightLimiter.getInFlight());
+            WebstoreMetrics.counter(out, "webstore_http_rejected_total", "Requests rejected with 503 by the in-flight limit", inFlightLimiter.getRejected());
+            WebstoreMetrics.counter(out, "webstore_log_events_dropped_total", "Delivery log events dropped because the buffer was full", eventLog.getDropped());
+
+            byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
     }
 
     private class HealthHandler implements HttpHandler {
@@ -400,24 +958,50 @@ public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
             exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
 
             if ("GET".equals(exchange.getRequestMethod())) {
-                JsonObject response = new JsonObject();
-                response.addProperty("status", "healthy");
-                response.addProperty("server", Bukkit.getServer().getName());
-                response.addProperty("online_players", Bukkit.getOnlinePlayers().size());
-                response.addProperty("plugin_version", getDescription().getVersion());
-                response.addProperty("minecraft_version", Bukkit.getVersion());
-                response.addProperty("pending_queue_size", pendingQueue.getTotalQueuedItems());
+                HealthSnapshot snapshot = health;
 
-                getLogger().info("Health check requested - Server healthy, " +
-                        Bukkit.getOnlinePlayers().size() + " players online");
+                if (logHealthRequests) {
+                    getLogger().info("Health check requested - Server healthy, " +
+                            snapshot.onlinePlayers + " players online");
+                }
 
-                sendResponse(exchange, 200, gson.toJson(response));
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, snapshot.json.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(snapshot.json);
+                }
             } else {
                 sendResponse(exchange, 405, createErrorResponse("Method not allowed"));
             }
         }
     }
 
+    // Runs on the main thread, so the Bukkit calls here are safe; /health only ever reads the result
+    private void refreshHealth() {
+        int onlinePlayers = Bukkit.getOnlinePlayers().size();
+
+        JsonObject response = new JsonObject();
+        response.addProperty("status", "healthy");
+        response.addProperty("server", Bukkit.getServer().getName());
+        response.addProperty("online_players", onlinePlayers);
+        response.addProperty("plugin_version", getDescription().getVersion());
+        response.addProperty("minecraft_version", Bukkit.getVersion());
+        response.addProperty("tps", Math.round(Bukkit.getTPS()[0] * 100) / 100.0);
+        response.addProperty("mspt", Math.round(Bukkit.getAverageTickTime() * 100) / 100.0);
+        response.addProperty("pending_queue_entries", pendingQueue.getTotalQueuedEntries());
+        response.addProperty("http_in_flight", inFlightLimiter.getInFlight());
+        response.addProperty("http_max_in_flight", inFlightLimiter.getMaxInFlight());
+        response.addProperty("http_rejected", inFlightLimiter.getRejected());
+        response.addProperty("delivery_backlog", deliveryScheduler.getBacklog());
+        response.addProperty("delivery_tick_budget_micros", deliveryScheduler.getBudgetMicros());
+        response.addProperty("delivery_last_tick_micros", deliveryScheduler.getLastTickMicros());
+        response.addProperty("delivery_last_tick_steps", deliveryScheduler.getLastTickSteps());
+        response.addProperty("log_events_dropped", eventLog.getDropped());
+        response.addProperty("sampled_at", System.currentTimeMillis());
+
+        health = new HealthSnapshot(onlinePlayers, gson.toJson(response));
+    }
+
     private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
         byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
         exchange.getResponseHeaders().set("Content-Type", "application/json");
@@ -428,27 +1012,23 @@ public class WebstoreIntegrationPlugin extends JavaPlugin implements Listener {
         }
     }
 
+    // Streams the body through the registered adapters, without building a String or byte[] first
+    private void sendJson(HttpExchange exchange, int statusCode, Object body, Type type) throws IOException {
+        long start = System.nanoTime();
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, 0);
+
+        try (JsonWriter writer = gson.newJsonWriter(new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)))) {
+            gson.toJson(body, type, writer);
+        }
+        deliveryMetrics.responseWrite.recordSince(start);
+    }
+
     private String createErrorResponse(String message) {
         JsonObject error = new JsonObject();
         error.addProperty("success", false);
         error.addProperty("error", message);
         return gson.toJson(error);
     }
-
-    // Data classes for JSON serialization
-    private static class DeliveryRequest {
-        Integer orderId;
-        String minecraftUsername;
-        List<String> commands;
-    }
-
-    private static class DeliveryResult {
-        Integer orderId;
-        String minecraftUsername;
-        boolean success;
-        String error;
-        List<String> executedCommands;
-        List<String> failedCommands;
-        List<String> queuedCommands;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package me.millosaurs.webstoreApi;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and per-stage latency histograms served on /metrics.
+ * Everything is striped (LongAdder), so recording never contends between HTTP threads and
+ * the main thread.
+ */
+public class WebstoreMetrics {
+    public final LongAdder ordersSucceeded = new LongAdder();
+    public final LongAdder ordersFailed = new LongAdder();
+    public final LongAdder ordersDuplicate = new LongAdder();
+    public final LongAdder ordersRejected = new LongAdder();
+    public final LongAdder commandsExecuted = new LongAdder();
+    public final LongAdder commandsFailed = new LongAdder();
+    public final LongAdder commandsQueued = new LongAdder();
+
+    public final LatencyHistogram bodyRead = new LatencyHistogram();
+    public final LatencyHistogram parse = new LatencyHistogram();
+    public final LatencyHistogram mainThreadWait = new LatencyHistogram();
+    public final LatencyHistogram mainThreadExecution = new LatencyHistogram();
+    public final LatencyHistogram responseWrite = new LatencyHistogram();
+    public final LatencyHistogram persistenceFlush = new LatencyHistogram();
+
+    public void recordResult(DeliveryResult result) {
+        (result.success ? ordersSucceeded : ordersFailed).increment();
+        commandsExecuted.add(result.executedCommands.size());
+        commandsFailed.add(result.failedCommands.size());
+        commandsQueued.add(result.queuedCommands.size());
+    }
+
+    public void writePrometheus(StringBuilder out) {
+        out.append("# HELP webstore_orders_total Orders received, by outcome\n");
+        out.append("# TYPE webstore_orders_total counter\n");
+        counter(out, "webstore_orders_total", "result", "succeeded", ordersSucceeded);
+        counter(out, "webstore_orders_total", "result", "failed", ordersFailed);
+        counter(out, "webstore_orders_total", "result", "duplicate", ordersDuplicate);
+        counter(out, "webstore_orders_total", "result", "rejected", ordersRejected);
+
+        out.append("# HELP webstore_commands_total Order commands processed, by outcome\n");
+        out.append("# TYPE webstore_commands_total counter\n");
+        counter(out, "webstore_commands_total", "result", "executed", commandsExecuted);
+        counter(out, "webstore_commands_total", "result", "failed", commandsFailed);
+        counter(out, "webstore_commands_total", "result", "queued", commandsQueued);
+
+        bodyRead.writePrometheus(out, "webstore_body_read_seconds", "Time spent reading request bodies");
+        parse.writePrometheus(out, "webstore_parse_seconds", "Time spent decoding request JSON, excluding reads");
+        mainThreadWait.writePrometheus(out, "webstore_main_thread_wait_seconds", "Time orders spent queued for the main thread, including ticks between their steps");
+        mainThreadExecution.writePrometheus(out, "webstore_main_thread_execution_seconds", "Main-thread time spent running an order's steps");
+        responseWrite.writePrometheus(out, "webstore_response_write_seconds", "Time spent writing delivery responses");
+        persistenceFlush.writePrometheus(out, "webstore_persistence_flush_seconds", "Time spent writing the pending queue to storage");
+    }
+
+    static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    static void gauge(StringBuilder out, String name, String help, double value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String label, String value, LongAdder counter) {
+        out.append(name).append('{').append(label).append("=\"").append(value).append("\"} ").append(counter.sum()).append('\n');
+    }
+}